@@ -0,0 +1,67 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ * Converted accounts & their currencies written next to the output of a shard, so 'merge' can report them for the
+ * whole input.
+ */
+final class AccountsReport {
+
+    private static final String FILE_EXTENSION = ".accounts";
+    private static final String CURRENCY_SEPARATOR = ",";
+
+    private AccountsReport() {
+    }
+
+    /* INTERFACE */
+
+    static Path getReportFile(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + FILE_EXTENSION);
+    }
+
+    static Map<String, Set<Currency>> read(Path outputFile) throws IOException {
+        Properties report = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(getReportFile(outputFile), StandardCharsets.UTF_8)) {
+            report.load(reader);
+        }
+
+        Map<String, Set<Currency>> result = new HashMap<>();
+        for (String account : report.stringPropertyNames()) {
+            //@formatter:off
+            result.put(account, Arrays.stream(report.getProperty(account).split(CURRENCY_SEPARATOR))
+                    .filter(code -> !code.isEmpty())
+                    .map(Currency::getInstance)
+                    .collect(Collectors.toSet()));
+            //@formatter:on
+        }
+
+        return result;
+    }
+
+    static void write(Path outputFile, Map<String, Set<Currency>> convertedAccounts) throws IOException {
+        Properties report = new Properties();
+
+        convertedAccounts.forEach((account, currencies) -> report.setProperty(account,
+                currencies.stream().map(Currency::getCurrencyCode).sorted()
+                        .collect(Collectors.joining(CURRENCY_SEPARATOR))));
+
+        try (Writer writer = Files.newBufferedWriter(getReportFile(outputFile), StandardCharsets.UTF_8)) {
+            report.store(writer, null);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package application;
 
+import cache.HomeMoneyCache;
 import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
@@ -12,22 +13,34 @@ import com.opencsv.bean.StatefulBeanToCsvBuilder;
 import com.opencsv.exceptions.CsvException;
 import com.opencsv.processor.RowProcessor;
 import converter.Converter;
+import converter.ExchangeRates;
+import converter.RewriteRules;
+import filter.FilteringReader;
+import filter.InputOrder;
+import filter.RecordFilter;
+import model.homemoney.HomeMoneyBatch;
 import model.homemoney.HomeMoneyCsvRecord;
+import model.rates.ExchangeRateCsvRecord;
+import model.rules.RewriteRuleCsvRecord;
+import model.zenmoney.ZenMoneyBatch;
 import model.zenmoney.ZenMoneyCsvRecord;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import output.FsyncPolicy;
+import output.OutputFiles;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
+import profiling.ConversionProfiler;
+import profiling.ConversionProfiler.Stage;
 
 import java.io.BufferedReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -36,19 +49,25 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.BitSet;
 import java.util.Currency;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Command(name = "HM2ZM", version = "HM2ZM v1.0", description = "Convert HomeMoney CSV to ZenMoney CSV.",
-         mixinStandardHelpOptions = true)
+         mixinStandardHelpOptions = true, subcommands = {DiffCommand.class, MergeCommand.class, WatchCommand.class})
 public final class Application implements Callable<Integer> {
 
     public static final class ExitCodes {
@@ -64,6 +83,62 @@ public final class Application implements Callable<Integer> {
 
     }
 
+    private static class BatchIterator implements Iterator<HomeMoneyCsvRecord> {
+
+        private final HomeMoneyBatch batch;
+        private int row;
+
+        private BatchIterator(HomeMoneyBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < batch.size();
+        }
+
+        @Override
+        public HomeMoneyCsvRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return batch.getRecord(row++);
+        }
+
+    }
+
+    private static class BatchingIterator implements Iterator<HomeMoneyCsvRecord> {
+
+        private final Iterator<HomeMoneyCsvRecord> origin;
+        private HomeMoneyBatch batch = new HomeMoneyBatch();
+
+        private BatchingIterator(Iterator<HomeMoneyCsvRecord> origin) {
+            this.origin = origin;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return origin.hasNext();
+        }
+
+        @Override
+        public HomeMoneyCsvRecord next() {
+            HomeMoneyCsvRecord record = origin.next();
+
+            if (batch != null) {
+                try {
+                    batch.add(record);
+                } catch (ArithmeticException e) {
+                    batch = null;   // not representable in the batch, so the input won't be cached
+                }
+            }
+
+            return record;
+        }
+
+    }
+
     private static class BlankColumnsToNullProcessor implements RowProcessor {
 
         @Override
@@ -84,25 +159,82 @@ public final class Application implements Callable<Integer> {
 
     }
 
+    private static final int MIN_OUTPUT_BUFFER_SIZE = 8192;
+    private static final char SEPARATOR = ';';
     private static final RowProcessor ROW_PROCESSOR = new BlankColumnsToNullProcessor();
+    private static final ThreadLocal<String> LOG_PREFIX = ThreadLocal.withInitial(() -> "");
 
     @Spec
     private CommandSpec commandSpec;
 
-    @Option(names = "--input-file", paramLabel = "<path>", required = true,
-            description = "Path to HomeMoney CSV file being converted.")
+    @Option(names = "--account", paramLabel = "<account>",
+            description = {"Multi-valued option for converting only records of the given accounts (transfers from " +
+                    "or to them included). Case-sensitive.", "Filters are checked before the records are parsed."})
+    private Set<String> filterAccounts = Set.of();
+
+    @Option(names = "--base-currency", paramLabel = "<currency code>",
+            description = {"Currency which amounts are additionally expressed in using '--rates-file' option.",
+                    "Required if '--rates-file' option is set."})
+    private Currency baseCurrency;
+
+    @Option(names = "--cache-dir", paramLabel = "<path>",
+            description = {"Directory for binary cache of parsed input files.",
+                    "Unchanged input files are read from the cache instead of being parsed again.",
+                    "If omitted then the cache won't be used."})
+    private Path cacheDirectory;
+
+    @Option(names = "--currency", paramLabel = "<currency code>",
+            description = "Multi-valued option for converting only records in the given currencies.")
+    private Set<Currency> filterCurrencies = Set.of();
+
+    @Option(names = "--fsync", paramLabel = "<policy>", defaultValue = "NEVER",
+            description = {"When output files are forced to disk: ${COMPLETION-CANDIDATES}.",
+                    "Default: ${DEFAULT-VALUE}."})
+    private FsyncPolicy fsyncPolicy;
+
+    @Option(names = "--from", paramLabel = "<yyyy-MM-dd>",
+            description = "Convert only records dated on or after the given day.")
+    private LocalDate from;
+
+    @Option(names = "--input-file", paramLabel = "<path>",
+            description = {"Path to HomeMoney CSV file being converted.", "Required unless a subcommand is used."})
     private Path inputFile;
 
+    @Option(names = "--input-order", paramLabel = "<order>", defaultValue = "UNSORTED",
+            description = {"Date order of the input file records: ${COMPLETION-CANDIDATES}.",
+                    "Reading of sorted input stops as soon as a record is past '--from' / '--to' range.",
+                    "Default: ${DEFAULT-VALUE}."})
+    private InputOrder inputOrder;
+
     @Option(names = "--multi-currency-account", paramLabel = "<account>",
             description =
                     "Multi-valued (i.e. may be included several times) option for specifying multi-currency " +
                             "accounts. Case-sensitive.")
     private Set<String> multiCurrencyAccounts = Set.of();
 
-    @Option(names = "--output-file", paramLabel = "<path>", required = true,
-            description = "Path to converted ZenMoney CSV file.")
+    @Option(names = "--output-file", paramLabel = "<path>",
+            description = {"Path to converted ZenMoney CSV file.", "Required unless a subcommand is used."})
     private Path outputFile;
 
+    private int outputBufferSize;
+
+    @Option(names = "--rates-file", paramLabel = "<path>",
+            description = {"Path to CSV file with exchange rates to base currency.",
+                    "Columns: 'date' (yyyy-MM-dd), 'currency' and 'rate' (base currency units per currency unit).",
+                    "Missing days use the last known rate. If omitted then amounts in base currency won't be output."})
+    private Path ratesFile;
+
+    @Option(names = "--rewrite-rules", paramLabel = "<path>",
+            description = {"Path to CSV file with rules rewriting categories and accounts during conversion.",
+                    "Columns: 'target' (ACCOUNT or CATEGORY), 'match' (EXACT value of the target, KEYWORD or " +
+                            "PREFIX of the description), 'pattern' and 'value'.",
+                    "Keyword & prefix matching is case-insensitive. The first matching rule wins, description " +
+                            "rules take precedence over exact ones."})
+    private Path rewriteRulesFile;
+
+    private int shardCount;
+    private int shardNumber;
+
     private int splitOutputBy;
 
     @Option(names = "--split-transfers-using-category", paramLabel = "<category name>", defaultValue = "<none>",
@@ -113,17 +245,27 @@ public final class Application implements Callable<Integer> {
                     "This option may affect '--split-output-by' option."})
     private String splitTransfersUsingCategory;
 
+    @Option(names = "--to", paramLabel = "<yyyy-MM-dd>",
+            description = "Convert only records dated on or before the given day.")
+    private LocalDate to;
+
     /* INTERFACE */
 
     @Override
     public Integer call() throws Exception {
-        printLine("Converting file: " + inputFile.toString());
-
-        int errorCount;
-        try (Reader inputFileReader = newFileReader(inputFile)) {
-            errorCount = convert(newCsvBeaner(inputFileReader));
+        if (inputFile == null) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required option: '--input-file=<path>'");
+        }
+        if (outputFile == null) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required option: '--output-file=<path>'");
+        }
+        if (shardCount > 0 && splitOutputBy > 0) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    "Option '--split-output-by' can't be used with '--shard', it should be passed to 'merge' instead.");
         }
 
+        int errorCount = convertFile(inputFile, outputFile);
+
         if (errorCount == 0) {
             printLine("Conversion completed with no errors.");
 
@@ -139,8 +281,161 @@ public final class Application implements Callable<Integer> {
         return new CommandLine(new Application()).execute(args);
     }
 
+    int convertFile(Path source, Path target) throws IOException {
+        printLine("Converting file: " + source.toString());
+
+        Converter converter = newConverter();
+        RecordFilter recordFilter = newRecordFilter();
+
+        // the cache holds the whole input, not a shard or a filtered part of it
+        HomeMoneyCache cache = cacheDirectory == null || shardCount > 0 || !recordFilter.isEmpty() ? null
+                : new HomeMoneyCache(cacheDirectory);
+        HomeMoneyCache.Key cacheKey = cache == null ? null : cache.newKey(source);
+        HomeMoneyBatch cached = cache == null ? null : cache.read(cacheKey);
+
+        int errorCount;
+        if (cached != null) {
+            printLine("Using cached parsed data.");
+
+            ZenMoneyBatch converted = null;
+            try {
+                converted = converter.convertBatch(cached);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                // irregular rows are left to be reported by conversion record by record
+                converter = newConverter();
+            }
+
+            errorCount = convert(converter, new BatchIterator(cached), List::of, target, null, null, converted);
+        } else {
+            ShardRange shardRange = newShardRange(source);
+            CountingInputStream inputStream = new CountingInputStream(
+                    shardRange == null ? Files.newInputStream(source) : shardRange.newInputStream());
+            LongSupplier inputOffset = shardRange == null ? inputStream::getByteCount
+                    : () -> shardRange.toFileOffset(inputStream.getByteCount());
+
+            try (Reader inputFileReader = newInputReader(inputStream, recordFilter)) {
+                LongUnaryOperator inputLine = inputFileReader instanceof FilteringReader
+                        ? ((FilteringReader) inputFileReader)::toInputLine : LongUnaryOperator.identity();
+                if (shardRange != null) {
+                    inputLine = inputLine.andThen(shardRange::toFileLine);
+                }
+                CsvToBean<HomeMoneyCsvRecord> csvBeaner =
+                        newCsvBeaner(inputFileReader, HomeMoneyCsvRecord.class, false);
+                // records are copied into a batch only if it's going to be cached
+                BatchingIterator batchingRecords = cache == null ? null : new BatchingIterator(csvBeaner.iterator());
+                Iterator<HomeMoneyCsvRecord> records = batchingRecords != null ? batchingRecords : csvBeaner.iterator();
+
+                errorCount = convert(converter, records, csvBeaner::getCapturedExceptions, target, inputOffset,
+                        inputLine, null);
+
+                // inputs with parsing errors aren't cached to keep the errors reported on every run
+                if (batchingRecords != null && batchingRecords.batch != null
+                        && csvBeaner.getCapturedExceptions().isEmpty()) {
+                    if (cache.write(cacheKey, batchingRecords.batch)) {
+                        printLine("Parsed data cached.");
+                    }
+                }
+
+                if (inputFileReader instanceof FilteringReader) {
+                    printFilterSummary((FilteringReader) inputFileReader);
+                }
+            }
+        }
+
+        return errorCount;
+    }
+
+    int convertRecords(Iterator<HomeMoneyCsvRecord> records, Supplier<List<CsvException>> capturedExceptions,
+            Path target) throws IOException {
+        return convert(newConverter(), records, capturedExceptions, target, null, null, null);
+    }
+
+    Reader newInputReader(InputStream origin) throws IOException {
+        return newInputReader(origin, newRecordFilter());
+    }
+
+    static void printConvertedAccounts(Map<String, Set<Currency>> convertedAccounts) {
+        if (!convertedAccounts.isEmpty()) {
+            printLine("List of suggested accounts to create at ZenMoney (followed by their currencies):");
+
+            convertedAccounts.entrySet().stream().sorted(Entry.comparingByKey()).forEachOrdered(e -> {
+                String account = e.getKey();
+                String currencies =
+                        e.getValue().stream().map(Currency::getCurrencyCode).sorted().collect(Collectors.joining(", "));
+
+                printLine(account + ": " + currencies);
+            });
+        }
+    }
+
     /* PROPERTIES */
 
+    Path getInputFile() {
+        return inputFile;
+    }
+
+    int getOutputBufferSize() {
+        return outputBufferSize;
+    }
+
+    @Option(names = "--output-buffer-size", paramLabel = "<bytes>", defaultValue = "1048576",
+            description = {"Size of each of two buffers output is encoded into while the other one is written.",
+                    "Default: ${DEFAULT-VALUE}."})
+    protected void setOutputBufferSize(int outputBufferSize) {
+        if (outputBufferSize < MIN_OUTPUT_BUFFER_SIZE) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    String.format("Invalid value '%d' for option '--output-buffer-size': value is less than %d.",
+                            outputBufferSize, MIN_OUTPUT_BUFFER_SIZE));
+        }
+
+        this.outputBufferSize = outputBufferSize;
+    }
+
+    Path getOutputFile() {
+        return outputFile;
+    }
+
+    FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    @Option(names = "--shard", paramLabel = "<i>/<N>",
+            description = {"Convert only i-th of N (1 <= i <= N) byte ranges of the input file.",
+                    "Ranges are aligned to lines and never split transfers. Converted accounts and lines of " +
+                            "split transfers are written to '<output file>.accounts' and " +
+                            "'<output file>.split-transfers' files.",
+                    "Shard outputs are joined using 'merge' subcommand."})
+    protected void setShard(String shard) {
+        String[] parts = shard.split("/", -1);
+
+        try {
+            if (parts.length == 2) {
+                int number = Integer.parseInt(parts[0]), count = Integer.parseInt(parts[1]);
+
+                if (number >= 1 && number <= count) {
+                    this.shardNumber = number;
+                    this.shardCount = count;
+
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+
+        throw new ParameterException(commandSpec.commandLine(),
+                String.format("Invalid value '%s' for option '--shard': value is not of '<i>/<N>' form with " +
+                        "1 <= i <= N.", shard));
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    int getSplitOutputBy() {
+        return splitOutputBy;
+    }
+
     @Option(names = "--split-output-by", paramLabel = "<N>", defaultValue = "0",
             description = {"Split output file into multiple files with <N> lines each.",
                     "If omitted or set as '0' then the output file won't be split."})
@@ -156,24 +451,38 @@ public final class Application implements Callable<Integer> {
 
     /* IMPLEMENTATION */
 
-    private int convert(CsvToBean<HomeMoneyCsvRecord> csvBeaner) throws IOException {
-        Converter converter = new Converter(multiCurrencyAccounts);
-        Iterator<HomeMoneyCsvRecord> records = csvBeaner.iterator();
+    /*
+     * Input offset & line are null if records aren't read from a file, the line maps numbers of lines read by the
+     * parser to lines of the input file. Converted batch is null if records aren't converted yet.
+     */
+    private int convert(Converter converter, Iterator<HomeMoneyCsvRecord> records,
+            Supplier<List<CsvException>> capturedExceptions, Path target, LongSupplier inputOffset,
+            LongUnaryOperator inputLine, ZenMoneyBatch convertedBatch) throws IOException {
+        LongUnaryOperator toInputLine = inputLine != null ? inputLine : LongUnaryOperator.identity();
+        ConversionProfiler profiler = new ConversionProfiler(inputOffset);
         List<String> invalidRecords = new LinkedList<>();
+        List<String> unratedRecords = new LinkedList<>();
         Writer outputFileWriter = null;
         StatefulBeanToCsv<ZenMoneyCsvRecord> beanToCsv = null;
-        int recordCount = 0, errorCount = 0, splitOutputCounter = 0, outputFileOrderNumber = 0;
+        int recordCount = 0, errorCount = 0, splitOutputCounter = 0, convertedRow = 0, lineCount = 0;
+        int unparsedCount = 0;
         HomeMoneyCsvRecord prevTransferRecord = null;
+        BitSet splitTransferLines = new BitSet();
 
-        try {
+        records = profiler.wrap(records);
+
+        try (OutputFiles outputFiles = new OutputFiles(target, splitOutputBy > 0, outputBufferSize, fsyncPolicy)) {
             while (records.hasNext()) {
+                unparsedCount = profileUnparsedLines(profiler, capturedExceptions.get(), unparsedCount, toInputLine);
+
                 try {
                     if (outputFileWriter == null) {
-                        outputFileWriter = newFileWriter(outputFile, recordCount == 0 ? null : ++outputFileOrderNumber);
-                        beanToCsv = new StatefulBeanToCsvBuilder<ZenMoneyCsvRecord>(outputFileWriter).build();
+                        outputFileWriter = outputFiles.next();
+                        beanToCsv = newBeanToCsv(outputFileWriter);
                     }
 
                     recordCount++;
+                    profiler.recordStarted(recordCount);
                     HomeMoneyCsvRecord record = records.next();
 
                     printLine(String.format("Converting record (%06d): %s", recordCount, record.toDisplayString()));
@@ -183,23 +492,31 @@ public final class Application implements Callable<Integer> {
 
                         invalidRecords.add("Record " + recordCount + ": " + record.toDisplayString());
                         prevTransferRecord = null;  // precaution
+                        profiler.transferDropped();
+                        profiler.recordRejected(recordCount);
                         errorCount++;
                         continue;
                     }
 
                     /* <CONVERTING> */
 
+                    profiler.enter(Stage.CONVERT);
+
                     ZenMoneyCsvRecord converted;
                     if (!record.isTransfer()) {
-                        converted = converter.convertRecord(record);
+                        converted = convertedBatch != null ? convertedBatch.getRecord(convertedRow++)
+                                : converter.convertRecord(record);
                     } else {
                         if (prevTransferRecord == null) {
                             printLine("Transfer detected, proceeding to the next record.");
 
                             prevTransferRecord = record;
+                            profiler.transferWaitStarted(recordCount);
                             continue;
                         } else {
-                            converted = converter.convertRecord(prevTransferRecord, record);
+                            profiler.transferPaired(recordCount);
+                            converted = convertedBatch != null ? convertedBatch.getRecord(convertedRow++)
+                                    : converter.convertRecord(prevTransferRecord, record);
                             prevTransferRecord = null;
                         }
                     }
@@ -212,14 +529,25 @@ public final class Application implements Callable<Integer> {
                         printLine("Converted record is not valid, skipping.");
 
                         invalidRecords.add("Record " + recordCount + ": " + converted.toDisplayString());
+                        profiler.recordRejected(recordCount);
                         errorCount++;
                         continue;
                     }
 
+                    if (ratesFile != null && !converted.hasBaseCurrencyAmounts()) {
+                        printLine("No exchange rate for the record, its base currency amount is left blank.");
+
+                        unratedRecords.add("Record " + recordCount + ": " + converted.toDisplayString());
+                        errorCount++;
+                    }
+
+                    profiler.enter(Stage.WRITE);
+
                     Objects.requireNonNull(beanToCsv, "beanToCsv"); // shut up linter!
                     if (!converted.isTransfer() || StringUtils.isEmpty(splitTransfersUsingCategory)) {
                         beanToCsv.write(converted);
                         splitOutputCounter++;
+                        lineCount++;
                     } else {
                         Pair<ZenMoneyCsvRecord, ZenMoneyCsvRecord> transferPair =
                                 converter.splitTransfer(converted, splitTransfersUsingCategory);
@@ -227,13 +555,17 @@ public final class Application implements Callable<Integer> {
                         beanToCsv.write(transferPair.getLeft());
                         beanToCsv.write(transferPair.getRight());
                         splitOutputCounter += 2;
+                        splitTransferLines.set(lineCount);
+                        lineCount += 2;
                     }
 
                     if (splitOutputBy > 0 && splitOutputCounter >= splitOutputBy) {
                         printLine("Current output file limit reached, closing.");
 
                         splitOutputCounter = 0;
+                        profiler.rotationStarted();
                         outputFileWriter.close();
+                        profiler.rotationFinished(recordCount);
                         outputFileWriter = null;
                         beanToCsv = null;
                     }
@@ -241,38 +573,44 @@ public final class Application implements Callable<Integer> {
                     printError("Exception while converting record " + recordCount + '.');
 
                     prevTransferRecord = null;  // precaution
+                    profiler.transferDropped();
+                    profiler.recordRejected(recordCount);
                     e.printStackTrace();
                     errorCount++;
                 }
             }
+
+            profileUnparsedLines(profiler, capturedExceptions.get(), unparsedCount, toInputLine);
         } finally {
-            if (outputFileWriter != null) {
-                outputFileWriter.close();
-            }
+            profiler.finish(recordCount);
         }
 
         Map<String, Set<Currency>> convertedAccounts = converter.getConvertedAccounts();
-        if (!convertedAccounts.isEmpty()) {
-            printLine("List of suggested accounts to create at ZenMoney (followed by their currencies):");
+        printConvertedAccounts(convertedAccounts);
+        if (shardCount > 0) {
+            AccountsReport.write(target, convertedAccounts);
+            SplitTransfersReport.write(target, splitTransferLines);
+        }
 
-            convertedAccounts.entrySet().stream().sorted(Entry.comparingByKey()).forEachOrdered(e -> {
-                String account = e.getKey();
-                String currencies =
-                        e.getValue().stream().map(Currency::getCurrencyCode).sorted().collect(Collectors.joining(", "));
+        List<RewriteRuleCsvRecord> rules = converter.getRewriteRules().getRules();
+        if (!rules.isEmpty()) {
+            printLine("List of rewrite rules (followed by their hit counts):");
 
-                printLine(account + ": " + currencies);
-            });
+            long[] ruleHits = converter.getRuleHits();
+            for (int i = 0; i < rules.size(); i++) {
+                printLine(rules.get(i) + ": " + ruleHits[i]);
+            }
         }
 
-        if (!csvBeaner.getCapturedExceptions().isEmpty()) {
+        if (!capturedExceptions.get().isEmpty()) {
             printError("List of exceptions that occurred during parsing of the input file:");
 
-            for (CsvException e : csvBeaner.getCapturedExceptions()) {
-                printError("Line " + e.getLineNumber() + ": " + e.getMessage() + " | Parsed data: " + ArrayUtils
-                        .toString(e.getLine()));
+            for (CsvException e : capturedExceptions.get()) {
+                printError("Line " + toInputLine.applyAsLong(e.getLineNumber()) + ": " + e.getMessage()
+                        + " | Parsed data: " + ArrayUtils.toString(e.getLine()));
             }
 
-            errorCount += csvBeaner.getCapturedExceptions().size();
+            errorCount += capturedExceptions.get().size();
         }
 
         if (!invalidRecords.isEmpty()) {
@@ -281,17 +619,80 @@ public final class Application implements Callable<Integer> {
             invalidRecords.forEach(Application::printError);
         }
 
+        if (!unratedRecords.isEmpty()) {
+            printError("List of records converted without exchange rate to the base currency:");
+
+            unratedRecords.forEach(Application::printError);
+        }
+
         return errorCount;
     }
 
-    private CsvToBean<HomeMoneyCsvRecord> newCsvBeaner(Reader reader) {
+    private ExchangeRates loadExchangeRates() throws IOException {
+        if (ratesFile == null) {
+            return null;
+        }
+        if (baseCurrency == null) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    "Option '--base-currency' is required if option '--rates-file' is set.");
+        }
+
+        try (Reader ratesFileReader = newReader(Files.newInputStream(ratesFile))) {
+            return new ExchangeRates(baseCurrency,
+                    newCsvBeaner(ratesFileReader, ExchangeRateCsvRecord.class, true).parse());
+        }
+    }
+
+    private RewriteRules loadRewriteRules() throws IOException {
+        if (rewriteRulesFile == null) {
+            return RewriteRules.EMPTY;
+        }
+
+        try (Reader rulesFileReader = newReader(Files.newInputStream(rewriteRulesFile))) {
+            return new RewriteRules(newCsvBeaner(rulesFileReader, RewriteRuleCsvRecord.class, true).parse());
+        }
+    }
+
+    private Converter newConverter() throws IOException {
+        return new Converter(multiCurrencyAccounts, loadRewriteRules(), loadExchangeRates());
+    }
+
+    private RecordFilter newRecordFilter() {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    String.format("Option '--from' (%s) can't be after option '--to' (%s).", from, to));
+        }
+
+        return new RecordFilter(from, to, filterAccounts, filterCurrencies);
+    }
+
+    private StatefulBeanToCsv<ZenMoneyCsvRecord> newBeanToCsv(Writer writer) {
+        StatefulBeanToCsvBuilder<ZenMoneyCsvRecord> builder = new StatefulBeanToCsvBuilder<>(writer);
+
+        if (ratesFile == null) {
+            try {
+                //@formatter:off
+                builder.withIgnoreField(ZenMoneyCsvRecord.class,
+                                ZenMoneyCsvRecord.class.getDeclaredField("incomeInBaseCurrency"))
+                        .withIgnoreField(ZenMoneyCsvRecord.class,
+                                ZenMoneyCsvRecord.class.getDeclaredField("outcomeInBaseCurrency"));
+                //@formatter:on
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return builder.build();
+    }
+
+    <T> CsvToBean<T> newCsvBeaner(Reader reader, Class<T> type, boolean throwExceptions) {
         CSVParser csvParser = newCsvParser();
         CSVReader csvReader = newCsvReader(reader, csvParser);
 
         //@formatter:off
-        return new CsvToBeanBuilder<HomeMoneyCsvRecord>(csvReader)
-                .withType(HomeMoneyCsvRecord.class)
-                .withThrowExceptions(false)
+        return new CsvToBeanBuilder<T>(csvReader)
+                .withType(type)
+                .withThrowExceptions(throwExceptions)
                 .build();
         //@formatter:on
     }
@@ -299,7 +700,7 @@ public final class Application implements Callable<Integer> {
     private CSVParser newCsvParser() {
         //@formatter:off
         return new CSVParserBuilder()
-                .withSeparator(';')
+                .withSeparator(SEPARATOR)
                 .withIgnoreQuotations(true)
                 .withEscapeChar(ICSVParser.NULL_CHARACTER)
                 .build();
@@ -315,34 +716,60 @@ public final class Application implements Callable<Integer> {
         //@formatter:on
     }
 
-    private static Reader newFileReader(Path path) throws IOException {
-        InputStream origin = Files.newInputStream(path);
+    // null if not sharded
+    private ShardRange newShardRange(Path source) throws IOException {
+        if (shardCount == 0) {
+            return null;
+        }
+
+        ShardRange shardRange = ShardRange.of(source, shardNumber - 1, shardCount, newCsvParser());
+        printLine(String.format("Converting shard %d/%d: %s", shardNumber, shardCount, shardRange));
+
+        return shardRange;
+    }
+
+    private Reader newInputReader(InputStream origin, RecordFilter recordFilter) throws IOException {
+        BufferedReader reader = newReader(origin);
+
+        return recordFilter.isEmpty() ? reader : new FilteringReader(reader, SEPARATOR, recordFilter, inputOrder);
+    }
+
+    static BufferedReader newReader(InputStream origin) throws IOException {
         BOMInputStream inputStream = BOMInputStream.builder().setInputStream(origin).get();
         Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8.newDecoder());
 
         return new BufferedReader(reader);
     }
 
-    private static Writer newFileWriter(Path path, Integer suffixNumber) throws IOException {
-        String fileName = path.toString();
+    // feeds lines dropped by the parser since the last call, while the input offset is still close to them
+    private static int profileUnparsedLines(ConversionProfiler profiler, List<CsvException> exceptions,
+            int profiledCount, LongUnaryOperator toInputLine) {
+        for (int i = profiledCount; i < exceptions.size(); i++) {
+            profiler.lineUnparsed(toInputLine.applyAsLong(exceptions.get(i).getLineNumber()));
+        }
+
+        return exceptions.size();
+    }
+
+    private static void printFilterSummary(FilteringReader filteringReader) {
+        printLine("Records skipped by filters: " + filteringReader.getRejectedCount());
 
-        if (suffixNumber != null) {
-            String extension = FilenameUtils.getExtension(fileName);
-            fileName = FilenameUtils.removeExtension(fileName) + suffixNumber;
-            if (StringUtils.isNotEmpty(extension)) {
-                fileName += FilenameUtils.EXTENSION_SEPARATOR + extension;
-            }
+        if (filteringReader.isStoppedEarly()) {
+            printLine("Rest of the sorted input is out of the date range, it wasn't read.");
         }
+    }
 
-        return new FileWriter(fileName, StandardCharsets.UTF_8);
+    static void printError(String error) {
+        System.err.println(LOG_PREFIX.get() + error);
     }
 
-    private static void printError(String error) {
-        System.err.println(error);
+    static void printLine(String line) {
+        System.out.println(LOG_PREFIX.get() + line);
     }
 
-    private static void printLine(String line) {
-        System.out.println(line);
+    // prepended to lines printed by the current thread
+    static void setLogPrefix(String prefix) {
+        LOG_PREFIX.set(prefix);
     }
 
 }
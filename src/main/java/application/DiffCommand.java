@@ -0,0 +1,274 @@
+package application;
+
+import com.opencsv.bean.CsvToBean;
+import diff.HashIndex;
+import diff.RecordUnits;
+import diff.RecordUnits.Unit;
+import diff.SortedHashRuns;
+import model.homemoney.HomeMoneyCsvRecord;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+
+@Command(name = "diff", description = {"Convert only records added to '--input-file' since an older export of it.",
+        "Records missing from '--input-file' are reported. Other options of the main command (filters included) " +
+                "apply as usual.",
+        "Consecutive transfer records are compared in pairs, so a transfer missing one of its records shifts the " +
+                "pairing of the following transfers, and unchanged ones among them are reported as added & removed."},
+         mixinStandardHelpOptions = true)
+public final class DiffCommand implements Callable<Integer> {
+
+    private interface UnitFilter {
+
+        boolean test(int ordinal, long hash);
+
+    }
+
+    private static final class AddedRecords implements Iterator<HomeMoneyCsvRecord> {
+
+        private final RecordUnits units;
+        private final UnitFilter filter;
+        private HomeMoneyCsvRecord next;
+        private HomeMoneyCsvRecord afterNext;
+        private int addedCount;
+
+        private AddedRecords(RecordUnits units, UnitFilter filter) {
+            this.units = units;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && units.hasNext()) {
+                Unit unit = units.next();
+
+                if (filter.test(unit.getOrdinal(), unit.getHash())) {
+                    next = unit.getFirst();
+                    afterNext = unit.getSecond();
+                    addedCount += unit.size();
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public HomeMoneyCsvRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            HomeMoneyCsvRecord record = next;
+            next = afterNext;
+            afterNext = null;
+
+            return record;
+        }
+
+    }
+
+    @ParentCommand
+    private Application application;
+
+    @Spec
+    private CommandSpec commandSpec;
+
+    @Option(names = "--max-index-size", paramLabel = "<N>", defaultValue = "4000000",
+            description = {"Maximum number of old export records kept in memory.",
+                    "Bigger old exports are compared by sorting on disk instead. Default: ${DEFAULT-VALUE}."})
+    private int maxIndexSize;
+
+    @Option(names = "--old-file", paramLabel = "<path>", required = true,
+            description = "Path to the older HomeMoney CSV export.")
+    private Path oldFile;
+
+    @Option(names = "--temp-dir", paramLabel = "<path>",
+            description = {"Directory for temporary files of on-disk sorting.",
+                    "If omitted then the system one is used."})
+    private Path tempDirectory;
+
+    private int addedCount;
+
+    /* INTERFACE */
+
+    @Override
+    public Integer call() throws Exception {
+        Path inputFile = application.getInputFile();
+        if (inputFile == null) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required option: '--input-file=<path>'");
+        }
+        Path outputFile = application.getOutputFile();
+        if (outputFile == null) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required option: '--output-file=<path>'");
+        }
+        if (application.getShardCount() > 0) {
+            throw new ParameterException(commandSpec.commandLine(), "Option '--shard' can't be used with 'diff'.");
+        }
+        if (maxIndexSize <= 0) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    String.format("Invalid value '%d' for option '--max-index-size': value is not a natural number.",
+                            maxIndexSize));
+        }
+
+        Application.printLine("Comparing file: " + inputFile + " to " + oldFile);
+
+        int errorCount, removedCount;
+
+        HashIndex index = readIndex();
+        if (index != null) {
+            // matched units are taken out of the index, what's left has been removed
+            errorCount = convertAdded(inputFile, outputFile, (ordinal, hash) -> !index.remove(hash));
+            removedCount = reportRemoved((ordinal, hash) -> index.remove(hash));
+        } else {
+            Application.printLine("Old file has more than " + maxIndexSize + " records, sorting on disk.");
+
+            BitSet added = new BitSet(), removed = new BitSet();
+            mergeJoin(added, removed);
+
+            errorCount = convertAdded(inputFile, outputFile, (ordinal, hash) -> added.get(ordinal));
+            removedCount = reportRemoved((ordinal, hash) -> removed.get(ordinal));
+        }
+
+        Application.printLine(String.format("Diff completed. Added records: %d; removed records: %d", addedCount,
+                removedCount));
+
+        if (errorCount == 0) {
+            Application.printLine("Conversion completed with no errors.");
+
+            return Application.ExitCodes.OK;
+        } else {
+            Application.printLine("Conversion completed with errors. Error count: " + errorCount);
+
+            return Application.ExitCodes.CONVERSION_COMPLETED_WITH_ERRORS;
+        }
+    }
+
+    /* IMPLEMENTATION */
+
+    private int convertAdded(Path inputFile, Path outputFile, UnitFilter filter) throws IOException {
+        try (Reader reader = application.newInputReader(Files.newInputStream(inputFile))) {
+            CsvToBean<HomeMoneyCsvRecord> csvBeaner = newCsvBeaner(reader);
+            AddedRecords records = new AddedRecords(new RecordUnits(csvBeaner.iterator()), filter);
+
+            int errorCount = application.convertRecords(records, csvBeaner::getCapturedExceptions, outputFile);
+            addedCount = records.addedCount;
+
+            return errorCount;
+        }
+    }
+
+    private void mergeJoin(BitSet added, BitSet removed) throws IOException {
+        Path directory = tempDirectory != null ? tempDirectory : Path.of(System.getProperty("java.io.tmpdir"));
+
+        try (SortedHashRuns oldRuns = new SortedHashRuns(directory, maxIndexSize);
+             SortedHashRuns newRuns = new SortedHashRuns(directory, maxIndexSize)) {
+            printOldFileErrors(writeRuns(oldFile, oldRuns));
+            writeRuns(application.getInputFile(), newRuns);
+
+            try (SortedHashRuns.Cursor oldCursor = oldRuns.sorted();
+                 SortedHashRuns.Cursor newCursor = newRuns.sorted()) {
+                boolean hasOld = oldCursor.next(), hasNew = newCursor.next();
+
+                while (hasOld || hasNew) {
+                    int order = !hasOld ? 1 : !hasNew ? -1 : Long.compare(oldCursor.getHash(), newCursor.getHash());
+
+                    if (order < 0) {
+                        removed.set(oldCursor.getOrdinal());
+                        hasOld = oldCursor.next();
+                    } else if (order > 0) {
+                        added.set(newCursor.getOrdinal());
+                        hasNew = newCursor.next();
+                    } else {
+                        hasOld = oldCursor.next();
+                        hasNew = newCursor.next();
+                    }
+                }
+            }
+        }
+    }
+
+    private CsvToBean<HomeMoneyCsvRecord> newCsvBeaner(Reader reader) {
+        return application.newCsvBeaner(reader, HomeMoneyCsvRecord.class, false);
+    }
+
+    // null if the old file doesn't fit into the index
+    private HashIndex readIndex() throws IOException {
+        HashIndex index = new HashIndex();
+
+        try (Reader reader = application.newInputReader(Files.newInputStream(oldFile))) {
+            CsvToBean<HomeMoneyCsvRecord> csvBeaner = newCsvBeaner(reader);
+
+            for (RecordUnits units = new RecordUnits(csvBeaner.iterator()); units.hasNext(); ) {
+                if (index.size() == maxIndexSize) {
+                    return null;
+                }
+
+                index.add(units.next().getHash());
+            }
+
+            printOldFileErrors(csvBeaner.getCapturedExceptions().size());
+        }
+
+        return index;
+    }
+
+    private int reportRemoved(UnitFilter filter) throws IOException {
+        int removedCount = 0;
+
+        try (Reader reader = application.newInputReader(Files.newInputStream(oldFile))) {
+            for (RecordUnits units = new RecordUnits(newCsvBeaner(reader).iterator()); units.hasNext(); ) {
+                Unit unit = units.next();
+
+                if (filter.test(unit.getOrdinal(), unit.getHash())) {
+                    if (removedCount == 0) {
+                        Application.printLine("List of records removed since the old file:");
+                    }
+
+                    Application.printLine("Record " + unit.getRecordNumber() + ": " + unit.getFirst().toDisplayString());
+                    if (unit.getSecond() != null) {
+                        Application.printLine(
+                                "Record " + (unit.getRecordNumber() + 1) + ": " + unit.getSecond().toDisplayString());
+                    }
+
+                    removedCount += unit.size();
+                }
+            }
+        }
+
+        return removedCount;
+    }
+
+    private void printOldFileErrors(int errorCount) {
+        if (errorCount > 0) {
+            Application.printError(errorCount + " records of the old file couldn't be parsed, they're ignored.");
+        }
+    }
+
+    // returns number of unparseable records
+    private int writeRuns(Path file, SortedHashRuns runs) throws IOException {
+        try (Reader reader = application.newInputReader(Files.newInputStream(file))) {
+            CsvToBean<HomeMoneyCsvRecord> csvBeaner = newCsvBeaner(reader);
+
+            for (RecordUnits units = new RecordUnits(csvBeaner.iterator()); units.hasNext(); ) {
+                Unit unit = units.next();
+
+                runs.add(unit.getHash(), unit.getOrdinal());
+            }
+
+            return csvBeaner.getCapturedExceptions().size();
+        }
+    }
+
+}
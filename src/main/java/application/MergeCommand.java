@@ -0,0 +1,132 @@
+package application;
+
+import output.OutputFiles;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+import java.io.BufferedReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+@Command(name = "merge", description = {"Merge outputs of '--shard' conversions into a single output.",
+        "Uses '--output-file' and '--split-output-by' options of the main command."},
+         mixinStandardHelpOptions = true)
+public final class MergeCommand implements Callable<Integer> {
+
+    private static final String LINE_END = "\n";    // same as opencsv's
+
+    @ParentCommand
+    private Application application;
+
+    @Spec
+    private CommandSpec commandSpec;
+
+    @Parameters(paramLabel = "<shard output>", arity = "1..*",
+                description = "Paths to converted ZenMoney CSV files of shards, in shard order.")
+    private List<Path> shardFiles;
+
+    /* INTERFACE */
+
+    @Override
+    public Integer call() throws Exception {
+        Path outputFile = application.getOutputFile();
+        if (outputFile == null) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required option: '--output-file=<path>'");
+        }
+
+        int splitOutputBy = application.getSplitOutputBy();
+        Map<String, Set<Currency>> convertedAccounts = new HashMap<>();
+        Writer outputFileWriter = null;
+        String header = null;
+        int lineCount = 0, splitOutputCounter = 0;
+        boolean reportsMissing = false;
+
+        try (OutputFiles outputFiles = new OutputFiles(outputFile, splitOutputBy > 0,
+                application.getOutputBufferSize(), application.getFsyncPolicy())) {
+            for (Path shardFile : shardFiles) {
+                Application.printLine("Merging file: " + shardFile.toString());
+
+                if (Files.notExists(shardFile) && Files.exists(AccountsReport.getReportFile(shardFile))) {
+                    Application.printLine("Shard had no records, skipping.");
+                    continue;
+                }
+
+                try (BufferedReader reader = Files.newBufferedReader(shardFile, StandardCharsets.UTF_8)) {
+                    String shardHeader = reader.readLine();
+                    if (shardHeader == null) {
+                        continue;   // shard without records
+                    }
+                    if (header != null && !Objects.equals(header, shardHeader)) {
+                        Application.printError("Columns of " + shardFile + " differ from the previous shards.");
+
+                        return Application.ExitCodes.UNRECOVERABLE_EXCEPTION;
+                    }
+                    header = shardHeader;
+
+                    BitSet splitTransferLines;
+                    try {
+                        splitTransferLines = SplitTransfersReport.read(shardFile);
+                    } catch (NoSuchFileException e) {
+                        Application.printError("Split transfers report of " + shardFile + " is missing.");
+
+                        splitTransferLines = new BitSet();
+                        reportsMissing = true;
+                    }
+
+                    int shardLine = 0;
+                    for (String line = reader.readLine(); line != null; line = reader.readLine(), shardLine++) {
+                        if (outputFileWriter == null) {
+                            outputFileWriter = outputFiles.next();
+                            outputFileWriter.write(header);
+                            outputFileWriter.write(LINE_END);
+                        }
+
+                        outputFileWriter.write(line);
+                        outputFileWriter.write(LINE_END);
+                        lineCount++;
+                        splitOutputCounter++;
+
+                        // same rule as the conversion has, halves of a split transfer stay in the same file
+                        if (splitOutputBy > 0 && splitOutputCounter >= splitOutputBy
+                                && !splitTransferLines.get(shardLine)) {
+                            splitOutputCounter = 0;
+                            outputFileWriter.close();
+                            outputFileWriter = null;
+                        }
+                    }
+                }
+
+                try {
+                    AccountsReport.read(shardFile).forEach((account, currencies) -> convertedAccounts
+                            .computeIfAbsent(account, (key) -> new HashSet<>()).addAll(currencies));
+                } catch (NoSuchFileException e) {
+                    Application.printError("Accounts report of " + shardFile + " is missing.");
+
+                    reportsMissing = true;
+                }
+            }
+        }
+
+        Application.printConvertedAccounts(convertedAccounts);
+        Application.printLine("Merge completed. Record count: " + lineCount);
+
+        return reportsMissing ? Application.ExitCodes.CONVERSION_COMPLETED_WITH_ERRORS : Application.ExitCodes.OK;
+    }
+
+}
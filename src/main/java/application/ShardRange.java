@@ -0,0 +1,240 @@
+package application;
+
+import com.opencsv.CSVParser;
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Byte range of the input file converted by a single shard. Boundaries are aligned to line starts and moved past the
+ * second leg of a transfer, so both legs of every transfer end up in the same shard. Every shard computes boundaries
+ * of its neighbours the same way, hence the ranges never overlap nor leave gaps. Lines before the range are counted
+ * once, so lines of the shard can be reported by their numbers in the file.
+ */
+final class ShardRange {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String TRANSFER_COLUMN = "transfer";
+
+    private final Path file;
+    private final byte[] header;
+    private final long start;
+    private final long end;
+    private final long skippedLineCount;
+
+    private ShardRange(Path file, byte[] header, long start, long end, long skippedLineCount) {
+        this.file = file;
+        this.header = header;
+        this.start = start;
+        this.end = end;
+        this.skippedLineCount = skippedLineCount;
+    }
+
+    /* INTERFACE */
+
+    static ShardRange of(Path file, int index, int count, CSVParser csvParser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerEnd = findLineStart(channel, 0);
+            byte[] header = readBytes(channel, 0, headerEnd);
+            int transferColumn = findTransferColumn(header, csvParser);
+
+            // boundaries of tiny shards may pass each other when moved, so they're kept non-decreasing
+            long start = headerEnd, end = headerEnd;
+            for (int boundary = 1; boundary <= index + 1; boundary++) {
+                start = end;
+                end = Math.max(end, findBoundary(channel, headerEnd, boundary, count, transferColumn, csvParser));
+            }
+
+            return new ShardRange(file, header, start, end, countLines(channel, headerEnd, start));
+        }
+    }
+
+    InputStream newInputStream() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(start);
+        InputStream range = new BoundedInputStream(Channels.newInputStream(channel), end - start);
+
+        return new SequenceInputStream(new ByteArrayInputStream(header), range);
+    }
+
+    // offset in the file of the given offset in the stream returned by newInputStream()
+    long toFileOffset(long streamOffset) {
+        return streamOffset < header.length ? streamOffset : start + streamOffset - header.length;
+    }
+
+    // 1-based number in the file of the given line of the stream returned by newInputStream(), the header is line 1
+    long toFileLine(long streamLine) {
+        return streamLine <= 1 ? streamLine : streamLine + skippedLineCount;
+    }
+
+    @Override
+    public String toString() {
+        return "bytes " + start + '-' + end + ", from line " + (skippedLineCount + 2);
+    }
+
+    /* PROPERTIES */
+
+    long getEnd() {
+        return end;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    /* IMPLEMENTATION */
+
+    private static long findBoundary(FileChannel channel, long headerEnd, int index, int count, int transferColumn,
+            CSVParser csvParser) throws IOException {
+        long size = channel.size();
+
+        if (index == count) {
+            return size;
+        }
+
+        long position = headerEnd + (size - headerEnd) * index / count;
+        position = findLineStart(channel, position - 1);
+
+        if (transferColumn >= 0 && position < size) {
+            // an odd number of transfer lines right before the boundary means it splits a transfer
+            int transferLines = 0;
+            for (long lineEnd = position; lineEnd > headerEnd; ) {
+                long lineStart = findPreviousLineStart(channel, lineEnd, headerEnd);
+
+                if (!isTransfer(readBytes(channel, lineStart, lineEnd), transferColumn, csvParser)) {
+                    break;
+                }
+
+                transferLines++;
+                lineEnd = lineStart;
+            }
+
+            if (transferLines % 2 == 1) {
+                position = findLineStart(channel, position);
+            }
+        }
+
+        return position;
+    }
+
+    private static long countLines(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long count = 0;
+
+        for (long position = from; position < to; ) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, to - position));
+
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    count++;
+                }
+            }
+
+            position += read;
+        }
+
+        return count;
+    }
+
+    private static int findTransferColumn(byte[] header, CSVParser csvParser) throws IOException {
+        String line = new String(header, StandardCharsets.UTF_8);
+        if (!line.isEmpty() && line.charAt(0) == ByteOrderMark.UTF_BOM) {
+            line = line.substring(1);
+        }
+
+        String[] columns = csvParser.parseLine(StringUtils.stripEnd(line, "\r\n"));
+        for (int i = 0; i < columns.length; i++) {
+            if (TRANSFER_COLUMN.equalsIgnoreCase(StringUtils.trim(columns[i]))) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // position right after the first line break found at or after the given position
+    private static long findLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long size = channel.size();
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+        }
+
+        return size;
+    }
+
+    // start of the line ending right before the given line start
+    private static long findPreviousLineStart(FileChannel channel, long lineEnd, long lowerBound) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = lineEnd - 1;    // skip line break of the line itself
+
+        while (position > lowerBound) {
+            int length = (int) Math.min(BUFFER_SIZE, position - lowerBound);
+            buffer.clear().limit(length);
+            channel.read(buffer, position - length);
+
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return position - length + i + 1;
+                }
+            }
+
+            position -= length;
+        }
+
+        return lowerBound;
+    }
+
+    private static boolean isTransfer(byte[] line, int transferColumn, CSVParser csvParser) throws IOException {
+        String[] columns =
+                csvParser.parseLine(StringUtils.stripEnd(new String(line, StandardCharsets.UTF_8), "\r\n"));
+
+        return columns != null && columns.length > transferColumn && StringUtils.isNotBlank(columns[transferColumn]);
+    }
+
+    private static byte[] readBytes(FileChannel channel, long from, long to) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream((int) Math.min(to - from, BUFFER_SIZE));
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        for (long position = from; position < to; ) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, to - position));
+
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            result.write(buffer.array(), 0, read);
+            position += read;
+        }
+
+        return result.toByteArray();
+    }
+
+}
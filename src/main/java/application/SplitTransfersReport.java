@@ -0,0 +1,33 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+/*
+ * Output lines of a shard (0-based, header excluded) holding the first half of a split transfer, written next to the
+ * output, so 'merge' never rotates output files between the halves, just like an unsharded conversion.
+ */
+final class SplitTransfersReport {
+
+    private static final String FILE_EXTENSION = ".split-transfers";
+
+    private SplitTransfersReport() {
+    }
+
+    /* INTERFACE */
+
+    static Path getReportFile(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + FILE_EXTENSION);
+    }
+
+    static BitSet read(Path outputFile) throws IOException {
+        return BitSet.valueOf(Files.readAllBytes(getReportFile(outputFile)));
+    }
+
+    static void write(Path outputFile, BitSet firstHalfLines) throws IOException {
+        Files.write(getReportFile(outputFile), firstHalfLines.toByteArray());
+    }
+
+}
@@ -0,0 +1,400 @@
+package application;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "watch", description = {"Watch directory for HomeMoney CSV files and convert new or changed ones.",
+        "Conversion options of the main command (except for input & output files) are applied to every file."},
+         mixinStandardHelpOptions = true)
+public final class WatchCommand implements Callable<Integer> {
+
+    private static final class FileState {
+
+        private final long size;
+        private final FileTime lastModified;
+
+        private FileState(long size, FileTime lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /* INTERFACE */
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+
+            FileState that = (FileState) obj;
+
+            return size == that.size && Objects.equals(lastModified, that.lastModified);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified);
+        }
+
+        static FileState of(Path path) throws IOException {
+            return new FileState(Files.size(path), Files.getLastModifiedTime(path));
+        }
+
+    }
+
+    private static final class PendingFile {
+
+        private FileState state;
+        private long lastChangeNanos;
+
+        private PendingFile(FileState state, long lastChangeNanos) {
+            this.state = state;
+            this.lastChangeNanos = lastChangeNanos;
+        }
+
+    }
+
+    private static final long MIN_POLL_MILLIS = 50;
+    private static final String STATUS_FILE_EXTENSION = ".status";
+
+    @ParentCommand
+    private Application application;
+
+    @Spec
+    private CommandSpec commandSpec;
+
+    private long debounceMillis;
+
+    @Option(names = "--glob", paramLabel = "<pattern>", defaultValue = "*.csv",
+            description = "Glob pattern of input file names to convert. Default: ${DEFAULT-VALUE}.")
+    private String glob;
+
+    @Option(names = "--input-dir", paramLabel = "<path>", required = true,
+            description = "Directory watched for HomeMoney CSV files.")
+    private Path inputDirectory;
+
+    @Option(names = "--output-dir", paramLabel = "<path>", required = true,
+            description = {"Directory for converted ZenMoney CSV files.",
+                    "Converted file keeps the name of its input file and is accompanied by '<name>"
+                            + STATUS_FILE_EXTENSION + "' status file."})
+    private Path outputDirectory;
+
+    private int workers;
+
+    private final Map<Path, FileState> convertedFiles = new ConcurrentHashMap<>();
+    private final Set<Path> convertingFiles = ConcurrentHashMap.newKeySet();
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+
+    /* INTERFACE */
+
+    @Override
+    public Integer call() throws Exception {
+        if (inputDirectory.toAbsolutePath().normalize().equals(outputDirectory.toAbsolutePath().normalize())) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    "Options '--input-dir' and '--output-dir' must point to different directories.");
+        }
+
+        Files.createDirectories(outputDirectory);
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+        WatchService watchService = inputDirectory.getFileSystem().newWatchService();
+        Thread watchThread = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            try {
+                watchService.close();
+                watchThread.join();     // let running conversions complete
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+            }
+        });
+
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        try (watchService) {
+            inputDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            Application.printLine("Watching directory: " + inputDirectory.toString());
+
+            // files dropped while the daemon wasn't running
+            scanDirectory(matcher);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                // nothing to debounce, so there's no reason to wake up before the next event
+                WatchKey key = pendingFiles.isEmpty() ? watchService.take()
+                        : watchService.poll(Math.max(debounceMillis / 2, MIN_POLL_MILLIS), TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    handleEvents(key, matcher);
+
+                    if (!key.reset()) {
+                        Application.printError("Watched directory is no longer accessible: " + inputDirectory);
+
+                        return Application.ExitCodes.UNRECOVERABLE_EXCEPTION;
+                    }
+                }
+
+                submitSettledFiles(executor);
+            }
+        } catch (ClosedWatchServiceException e) {
+            Application.printLine("Stopping, waiting for running conversions to complete.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // shutting down already
+            }
+        }
+
+        return Application.ExitCodes.OK;
+    }
+
+    /* PROPERTIES */
+
+    @Option(names = "--debounce", paramLabel = "<milliseconds>", defaultValue = "2000",
+            description = {"Time a file must stay unchanged before it's converted.", "Default: ${DEFAULT-VALUE}."})
+    protected void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    String.format("Invalid value '%d' for option '--debounce': value is negative.", debounceMillis));
+        }
+
+        this.debounceMillis = debounceMillis;
+    }
+
+    @Option(names = "--workers", paramLabel = "<N>", defaultValue = "2",
+            description = {"Number of files converted concurrently.", "Default: ${DEFAULT-VALUE}."})
+    protected void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    String.format("Invalid value '%d' for option '--workers': value is not a positive number.",
+                            workers));
+        }
+
+        this.workers = workers;
+    }
+
+    /* IMPLEMENTATION */
+
+    private void convert(Path inputFile, FileState state) {
+        Path outputFile = outputDirectory.resolve(inputFile.getFileName());
+        Properties status = new Properties();
+
+        status.setProperty("input", inputFile.toString());
+        status.setProperty("inputSize", Long.toString(state.size));
+        status.setProperty("inputLastModified", Long.toString(state.lastModified.toMillis()));
+        status.setProperty("output", outputFile.toString());
+        status.setProperty("started", Instant.now().toString());
+
+        // files are converted concurrently, so their log lines are told apart by the name
+        Application.setLogPrefix("[" + inputFile.getFileName() + "] ");
+
+        try {
+            writeStatus(outputFile, status, "CONVERTING");
+
+            int errorCount = application.convertFile(inputFile, outputFile);
+            String result = errorCount == 0 ? "OK" : "COMPLETED_WITH_ERRORS";
+
+            status.setProperty("errorCount", Integer.toString(errorCount));
+            status.setProperty("finished", Instant.now().toString());
+            writeStatus(outputFile, status, result);
+
+            Application.printLine("File converted: " + result + "; error count: " + errorCount);
+
+            convertedFiles.put(inputFile, state);
+        } catch (Exception e) {
+            Application.printError("Exception while converting file " + inputFile + '.');
+            e.printStackTrace();
+
+            status.setProperty("error", String.valueOf(e));
+            status.setProperty("finished", Instant.now().toString());
+            try {
+                writeStatus(outputFile, status, "FAILED");
+            } catch (IOException statusException) {
+                statusException.printStackTrace();
+            }
+
+            // remembered anyway, so a broken file isn't converted again until it's changed
+            convertedFiles.put(inputFile, state);
+        } finally {
+            convertingFiles.remove(inputFile);
+            Application.setLogPrefix("");
+        }
+    }
+
+    private void handleEvents(WatchKey key, PathMatcher matcher) throws IOException {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scanDirectory(matcher);
+                continue;
+            }
+
+            Path fileName = (Path) event.context();
+            if (matcher.matches(fileName)) {
+                touchFile(inputDirectory.resolve(fileName));
+            }
+        }
+    }
+
+    private boolean isUpToDate(Path inputFile, FileState state) {
+        Path statusFile = getStatusFile(outputDirectory.resolve(inputFile.getFileName()));
+        Properties status = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(statusFile, StandardCharsets.UTF_8)) {
+            status.load(reader);
+        } catch (IOException e) {
+            return false;
+        }
+
+        //@formatter:off
+        boolean upToDate =
+                   !"CONVERTING".equals(status.getProperty("status"))
+                && Long.toString(state.size).equals(status.getProperty("inputSize"))
+                && Long.toString(state.lastModified.toMillis()).equals(status.getProperty("inputLastModified"));
+        //@formatter:on
+
+        if (upToDate) {
+            convertedFiles.put(inputFile, state);
+        }
+
+        return upToDate;
+    }
+
+    private void scanDirectory(PathMatcher matcher) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDirectory)) {
+            for (Path file : files) {
+                if (matcher.matches(file.getFileName())) {
+                    touchFile(file);
+                }
+            }
+        }
+    }
+
+    private void submitSettledFiles(ExecutorService executor) {
+        long now = System.nanoTime();
+
+        for (Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+                iterator.hasNext(); ) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path file = entry.getKey();
+            PendingFile pending = entry.getValue();
+
+            if (TimeUnit.NANOSECONDS.toMillis(now - pending.lastChangeNanos) < debounceMillis
+                    || convertingFiles.contains(file)) {
+                continue;
+            }
+
+            // events may be missed while the file is being written, so compare its state once more
+            FileState state;
+            try {
+                state = FileState.of(file);
+            } catch (IOException e) {
+                iterator.remove();  // deleted or renamed
+                continue;
+            }
+            if (!state.equals(pending.state)) {
+                pending.state = state;
+                pending.lastChangeNanos = now;
+                continue;
+            }
+
+            iterator.remove();
+            if (!state.equals(convertedFiles.get(file)) && !isUpToDate(file, state)) {
+                convertingFiles.add(file);
+                executor.execute(() -> convert(file, state));
+            }
+        }
+    }
+
+    private void touchFile(Path file) {
+        FileState state;
+        try {
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+
+            state = FileState.of(file);
+        } catch (IOException e) {
+            return;
+        }
+
+        PendingFile pending = pendingFiles.get(file);
+        if (pending == null) {
+            pendingFiles.put(file, new PendingFile(state, System.nanoTime()));
+        } else {
+            pending.state = state;
+            pending.lastChangeNanos = System.nanoTime();
+        }
+    }
+
+    private static Path getStatusFile(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + STATUS_FILE_EXTENSION);
+    }
+
+    private static void writeStatus(Path outputFile, Properties status, String state) throws IOException {
+        Path statusFile = getStatusFile(outputFile);
+        Path tempFile = Files.createTempFile(statusFile.getParent(), statusFile.getFileName().toString(), ".tmp");
+
+        status.setProperty("status", state);
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                status.store(writer, null);
+            }
+
+            try {
+                Files.move(tempFile, statusFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, statusFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
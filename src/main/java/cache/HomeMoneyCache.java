@@ -0,0 +1,345 @@
+package cache;
+
+import model.commons.Dictionary;
+import model.homemoney.HomeMoneyBatch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+public final class HomeMoneyCache {
+
+    public static final class Key {
+
+        private final Path inputFile;
+        private final long size;
+        private final long lastModified;
+        private final byte[] hash;
+
+        private Key(Path inputFile, long size, long lastModified, byte[] hash) {
+            this.inputFile = inputFile;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        /* PROPERTIES */
+
+        public Path getInputFile() {
+            return inputFile;
+        }
+
+    }
+
+    private static final int MAGIC = 0x484D325A;    // "HM2Z"
+    private static final int VERSION = 2;
+    private static final String FILE_EXTENSION = ".hm2zm";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int ROW_BYTES = Integer.BYTES * 6 + Long.BYTES + Byte.BYTES;
+
+    private final Path directory;
+
+    public HomeMoneyCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /* INTERFACE */
+
+    public Key newKey(Path inputFile) throws IOException {
+        Path path = inputFile.toAbsolutePath().normalize();
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+        return new Key(path, size, lastModified, hash(path));
+    }
+
+    /*
+     * The header & checksum are checked with plain reads and only a valid file is mapped, since a mapped file can't be
+     * deleted on some systems (Windows) until the mapping is garbage collected.
+     */
+    public HomeMoneyBatch read(Key key) throws IOException {
+        Path cacheFile = getCacheFile(key);
+        HomeMoneyBatch batch = null;
+
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(getHeaderLength(key) + Integer.BYTES);
+
+            if (readFully(channel, header, 0) && readHeader(header.flip(), key)) {
+                int checksum = header.getInt();
+
+                // damaged payload would be converted into wrong output, so it's checked before being read
+                if (checksum(channel, header.limit()) == checksum) {
+                    batch = readBatch(channel.map(FileChannel.MapMode.READ_ONLY, header.limit(),
+                            channel.size() - header.limit()));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            batch = null;   // corrupted
+        }
+
+        // stale or corrupted cache files are simply dropped, the caller will parse the input again
+        if (batch == null) {
+            delete(cacheFile);
+        }
+
+        return batch;
+    }
+
+    public boolean write(Key key, HomeMoneyBatch batch) throws IOException {
+        // the input may have been changed while it was being parsed
+        if (Files.size(key.inputFile) != key.size
+                || Files.getLastModifiedTime(key.inputFile).toMillis() != key.lastModified) {
+            return false;
+        }
+
+        Files.createDirectories(directory);
+
+        Path cacheFile = getCacheFile(key);
+        Path tempFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+
+        try {
+            CRC32C checksum = new CRC32C();
+            long checksumPosition;
+
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                writeHeader(output, key);
+
+                checksumPosition = output.size();
+                output.writeInt(0);     // known only after the payload is written
+
+                writeBatch(new DataOutputStream(new CheckedOutputStream(output, checksum)), batch);
+            }
+
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) checksum.getValue()),
+                        checksumPosition);
+            }
+
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (FileSystemException e) {
+            return false;   // the old cache file may still be in use (mapped by another run), it's only a cache
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        return true;
+    }
+
+    /* IMPLEMENTATION */
+
+    private Path getCacheFile(Key key) {
+        String pathHash = toHex(digest(key.inputFile.toString().getBytes(StandardCharsets.UTF_8)));
+
+        return directory.resolve(key.inputFile.getFileName() + "." + pathHash.substring(0, 16) + FILE_EXTENSION);
+    }
+
+    private static int getHeaderLength(Key key) {
+        return Integer.BYTES * 2 + Long.BYTES * 2 + Integer.BYTES + key.hash.length;
+    }
+
+    private static boolean readHeader(ByteBuffer buffer, Key key) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return false;
+        }
+        if (buffer.getLong() != key.size || buffer.getLong() != key.lastModified) {
+            return false;
+        }
+
+        return Arrays.equals(readBytes(buffer), key.hash);
+    }
+
+    private static HomeMoneyBatch readBatch(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0 || size > buffer.remaining() / ROW_BYTES) {
+            throw new IllegalArgumentException("size == " + size);
+        }
+
+        HomeMoneyBatch batch = new HomeMoneyBatch(size);
+
+        readDictionary(buffer, batch.getAccounts(), Function.identity());
+        readDictionary(buffer, batch.getCategories(), Function.identity());
+        readDictionary(buffer, batch.getCurrencies(), Currency::getInstance);
+        readDictionary(buffer, batch.getDescriptions(), Function.identity());
+
+        for (int row = 0; row < size; row++) {
+            //@formatter:off
+            batch.addRow(
+                    buffer.getInt(),    // date
+                    buffer.getLong(),   // total
+                    buffer.get(),       // total scale
+                    buffer.getInt(),    // account
+                    buffer.getInt(),    // category
+                    buffer.getInt(),    // currency
+                    buffer.getInt(),    // description
+                    buffer.getInt());   // transfer
+            //@formatter:on
+        }
+
+        return batch;
+    }
+
+    private static <T> void readDictionary(ByteBuffer buffer, Dictionary<T> dictionary,
+            Function<String, T> decoder) {
+        int size = buffer.getInt();
+
+        for (int i = 0; i < size; i++) {
+            String value = new String(readBytes(buffer), StandardCharsets.UTF_8);
+
+            if (dictionary.encode(decoder.apply(value)) != i) {
+                throw new IllegalArgumentException("Duplicate dictionary value at index " + i + '.');
+            }
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("length == " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+    private static void writeHeader(DataOutputStream output, Key key) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(key.size);
+        output.writeLong(key.lastModified);
+        output.writeInt(key.hash.length);
+        output.write(key.hash);
+    }
+
+    private static void writeBatch(DataOutputStream output, HomeMoneyBatch batch) throws IOException {
+        output.writeInt(batch.size());
+
+        writeDictionary(output, batch.getAccounts().getValues(), Function.identity());
+        writeDictionary(output, batch.getCategories().getValues(), Function.identity());
+        writeDictionary(output, batch.getCurrencies().getValues(), Currency::getCurrencyCode);
+        writeDictionary(output, batch.getDescriptions().getValues(), Function.identity());
+
+        for (int row = 0; row < batch.size(); row++) {
+            output.writeInt(batch.getDate(row));
+            output.writeLong(batch.getTotal(row));
+            output.writeByte(batch.getTotalScale(row));
+            output.writeInt(batch.getAccountId(row));
+            output.writeInt(batch.getCategoryId(row));
+            output.writeInt(batch.getCurrencyId(row));
+            output.writeInt(batch.getDescriptionId(row));
+            output.writeInt(batch.getTransferId(row));
+        }
+    }
+
+    private static <T> void writeDictionary(DataOutputStream output, List<T> values, Function<T, String> encoder)
+            throws IOException {
+        output.writeInt(values.size());
+
+        for (T value : values) {
+            byte[] bytes = encoder.apply(value).getBytes(StandardCharsets.UTF_8);
+
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    // of everything from the given position to the end of the file
+    private static int checksum(FileChannel channel, long position) throws IOException {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        for (int read; (read = channel.read(buffer.clear(), position)) > 0; position += read) {
+            checksum.update(buffer.flip());
+        }
+
+        return (int) checksum.getValue();
+    }
+
+    // deleting is best effort, a file that can't be deleted now is replaced or deleted by a later run
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // ignored, parsing the input doesn't depend on it
+        }
+    }
+
+    // false if the file ends before the buffer is filled
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+
+            position += read;
+        }
+
+        return true;
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        return newMessageDigest().digest(bytes);
+    }
+
+    private static byte[] hash(Path path) throws IOException {
+        MessageDigest messageDigest = newMessageDigest();
+        byte[] buffer = new byte[1 << 16];
+
+        try (InputStream input = new DigestInputStream(Files.newInputStream(path), messageDigest)) {
+            //noinspection StatementWithEmptyBody
+            while (input.read(buffer) != -1) {
+            }
+        }
+
+        return messageDigest.digest();
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return result.toString();
+    }
+
+}
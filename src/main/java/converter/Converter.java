@@ -1,46 +1,209 @@
 package converter;
 
+import model.commons.Amounts;
+import model.commons.Dictionary;
+import model.commons.EpochDays;
+import model.homemoney.HomeMoneyBatch;
 import model.homemoney.HomeMoneyCsvRecord;
+import model.rules.RewriteRuleCsvRecord.Target;
+import model.zenmoney.ZenMoneyBatch;
 import model.zenmoney.ZenMoneyCsvRecord;
 import org.apache.commons.lang3.tuple.Pair;
+import profiling.ConverterBatchEvent;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Currency;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public final class Converter {
 
+    private static final int BASE_CURRENCY_RATE_INDEX = -2;
+    private static final int[] NO_DESCRIPTION_RULES = new int[Target.values().length];
+
+    static {
+        Arrays.fill(NO_DESCRIPTION_RULES, RewriteRules.NONE);
+    }
+
     private final Map<String, Set<Currency>> convertedAccounts = new HashMap<>();
     private final Set<String> multiCurrencyAccounts;
+    private final RewriteRules rewriteRules;
+    private final long[] ruleHits;
+    private final ExchangeRates exchangeRates;
 
     public Converter(Set<String> multiCurrencyAccounts) {
+        this(multiCurrencyAccounts, RewriteRules.EMPTY, null);
+    }
+
+    public Converter(Set<String> multiCurrencyAccounts, RewriteRules rewriteRules, ExchangeRates exchangeRates) {
         this.multiCurrencyAccounts = Set.copyOf(multiCurrencyAccounts);
+        this.rewriteRules = rewriteRules;
+        this.ruleHits = new long[rewriteRules.getRules().size()];
+        this.exchangeRates = exchangeRates;
     }
 
     /* INTERFACE */
 
+    // all rows are checked before any of them is converted
+    public ZenMoneyBatch convertBatch(HomeMoneyBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("batch == null");
+        }
+
+        ConverterBatchEvent event = new ConverterBatchEvent();
+        event.begin();
+
+        int size = batch.size();
+        int[] dates = batch.getDateColumn();
+        long[] totals = batch.getTotalColumn();
+        byte[] totalScales = batch.getTotalScaleColumn();
+        int[] accountIds = batch.getAccountIdColumn();
+        int[] categoryIds = batch.getCategoryIdColumn();
+        int[] currencyIds = batch.getCurrencyIdColumn();
+        int[] descriptionIds = batch.getDescriptionIdColumn();
+        int[] transferIds = batch.getTransferIdColumn();
+
+        int convertedSize = 0;
+        for (int row = 0; row < size; row++, convertedSize++) {
+            checkRow(batch, row);
+
+            if (transferIds[row] != Dictionary.NONE) {
+                checkTransferRows(batch, row);
+
+                row++;
+            }
+        }
+
+        Dictionary<String> categories =
+                rewriteRules.isEmpty() ? batch.getCategories() : new Dictionary<>(batch.getCategories());
+        ZenMoneyBatch converted =
+                new ZenMoneyBatch(new Dictionary<>(), categories, batch.getDescriptions(), batch.getCurrencies(),
+                        convertedSize);
+        int[] convertedAccountIds =
+                new int[Math.multiplyExact(batch.getAccounts().size(), batch.getCurrencies().size())];
+        int[][] descriptionRules = new int[batch.getDescriptions().size()][];    // matched once per description
+        int[] rateIndexes = getRateIndexes(batch);
+
+        Arrays.fill(convertedAccountIds, Dictionary.NONE);
+
+        converted.addRows(convertedSize);
+
+        int[] sourceRows = converted.getSourceRowColumn();
+        int[] convertedDates = converted.getDateColumn();
+        int[] convertedCategoryIds = converted.getCategoryIdColumn();
+        int[] commentIds = converted.getCommentIdColumn();
+        long[] incomes = converted.getIncomeColumn();
+        byte[] incomeScales = converted.getIncomeScaleColumn();
+        int[] incomeAccountIds = converted.getIncomeAccountIdColumn();
+        int[] incomeCurrencyIds = converted.getIncomeCurrencyIdColumn();
+        long[] incomesInBaseCurrency = converted.getIncomeInBaseCurrencyColumn();
+        byte[] incomeInBaseCurrencyScales = converted.getIncomeInBaseCurrencyScaleColumn();
+        long[] outcomes = converted.getOutcomeColumn();
+        byte[] outcomeScales = converted.getOutcomeScaleColumn();
+        int[] outcomeAccountIds = converted.getOutcomeAccountIdColumn();
+        int[] outcomeCurrencyIds = converted.getOutcomeCurrencyIdColumn();
+        long[] outcomesInBaseCurrency = converted.getOutcomeInBaseCurrencyColumn();
+        byte[] outcomeInBaseCurrencyScales = converted.getOutcomeInBaseCurrencyScaleColumn();
+
+        for (int row = 0, convertedRow = 0; row < size; row++, convertedRow++) {
+            int sourceRow = row, outcomeRow = Dictionary.NONE, incomeRow = Dictionary.NONE;
+            boolean isTransfer = transferIds[row] != Dictionary.NONE;
+            if (!isTransfer) {
+                if (totals[row] >= 0) {
+                    incomeRow = row;
+                } else {
+                    outcomeRow = row;
+                }
+            } else {
+                outcomeRow = row;
+                incomeRow = ++row;
+            }
+
+            int[] rowDescriptionRules = findDescriptionRules(batch, descriptionIds[sourceRow], descriptionRules);
+            int categoryId = categoryIds[sourceRow];
+            int categoryRule = rewriteRules.isEmpty() ? RewriteRules.NONE
+                    : findRule(Target.CATEGORY, categories.decode(categoryId), rowDescriptionRules);
+
+            sourceRows[convertedRow] = sourceRow;
+            convertedCategoryIds[convertedRow] = categoryRule == RewriteRules.NONE ? categoryId
+                    : categories.encode(rewriteRules.getValue(categoryRule));
+            commentIds[convertedRow] = descriptionIds[sourceRow];
+            convertedDates[convertedRow] = dates[sourceRow];
+
+            if (incomeRow != Dictionary.NONE) {
+                int currencyId = currencyIds[incomeRow];
+
+                incomes[convertedRow] = totals[incomeRow];
+                incomeScales[convertedRow] = totalScales[incomeRow];
+                incomeAccountIds[convertedRow] =
+                        convertAccount(batch, accountIds[incomeRow], currencyId, converted, convertedAccountIds,
+                                isTransfer ? NO_DESCRIPTION_RULES : rowDescriptionRules);
+                incomeCurrencyIds[convertedRow] = currencyId;
+
+                BigDecimal incomeInBaseCurrency =
+                        toBaseCurrency(totals[incomeRow], totalScales[incomeRow], currencyId, dates[incomeRow],
+                                rateIndexes);
+                if (incomeInBaseCurrency != null) {
+                    incomesInBaseCurrency[convertedRow] = Amounts.unscaledOf(incomeInBaseCurrency);
+                    incomeInBaseCurrencyScales[convertedRow] = Amounts.scaleOf(incomeInBaseCurrency);
+                }
+            }
+            if (outcomeRow != Dictionary.NONE) {
+                int currencyId = currencyIds[outcomeRow];
+
+                outcomes[convertedRow] = -totals[outcomeRow];
+                outcomeScales[convertedRow] = totalScales[outcomeRow];
+                outcomeAccountIds[convertedRow] =
+                        convertAccount(batch, accountIds[outcomeRow], currencyId, converted, convertedAccountIds,
+                                isTransfer ? NO_DESCRIPTION_RULES : rowDescriptionRules);
+                outcomeCurrencyIds[convertedRow] = currencyId;
+
+                BigDecimal outcomeInBaseCurrency =
+                        toBaseCurrency(totals[outcomeRow], totalScales[outcomeRow], currencyId, dates[outcomeRow],
+                                rateIndexes);
+                if (outcomeInBaseCurrency != null) {
+                    outcomesInBaseCurrency[convertedRow] = -Amounts.unscaledOf(outcomeInBaseCurrency);
+                    outcomeInBaseCurrencyScales[convertedRow] = Amounts.scaleOf(outcomeInBaseCurrency);
+                }
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.set("convertBatch", 0, size - 1, converted.size());
+            event.commit();
+        }
+
+        return converted;
+    }
+
     public ZenMoneyCsvRecord convertRecord(HomeMoneyCsvRecord record) {
         if (record == null || record.isTransfer()) {
             throw new IllegalArgumentException("record == " + record);
         }
 
         ZenMoneyCsvRecord converted = new ZenMoneyCsvRecord();
+        int[] descriptionRules = findDescriptionRules(record.getDescription());
 
-        converted.setCategoryName(record.getCategory());
+        converted.setCategoryName(rewrite(Target.CATEGORY, record.getCategory(), descriptionRules));
         converted.setComment(record.getDescription());
         converted.setDate(record.getDate());
 
         if (record.getTotal().signum() >= 0) {
             converted.setIncome(record.getTotal());
-            converted.setIncomeAccountName(convertAccount(record));
+            converted.setIncomeAccountName(convertAccount(record, descriptionRules));
             converted.setIncomeCurrencyShortTitle(record.getCurrency());
+            converted.setIncomeInBaseCurrency(toBaseCurrency(converted.getIncome(), record));
         } else {
             converted.setOutcome(record.getTotal().negate());
-            converted.setOutcomeAccountName(convertAccount(record));
+            converted.setOutcomeAccountName(convertAccount(record, descriptionRules));
             converted.setOutcomeCurrencyShortTitle(record.getCurrency());
+            converted.setOutcomeInBaseCurrency(toBaseCurrency(converted.getOutcome(), record));
         }
 
         return converted;
@@ -60,17 +223,22 @@ public final class Converter {
 
         ZenMoneyCsvRecord converted = new ZenMoneyCsvRecord();
 
-        converted.setCategoryName(transferRecord1.getCategory());
+        int[] descriptionRules = findDescriptionRules(transferRecord1.getDescription());
+
+        converted.setCategoryName(rewrite(Target.CATEGORY, transferRecord1.getCategory(), descriptionRules));
         converted.setComment(transferRecord1.getDescription());
         converted.setDate(transferRecord1.getDate());
 
+        // description rules aren't applied to transfer accounts as it's unknown which leg they are meant for
         converted.setIncome(transferRecord2.getTotal());
-        converted.setIncomeAccountName(convertAccount(transferRecord2));
+        converted.setIncomeAccountName(convertAccount(transferRecord2, NO_DESCRIPTION_RULES));
         converted.setIncomeCurrencyShortTitle(transferRecord2.getCurrency());
+        converted.setIncomeInBaseCurrency(toBaseCurrency(converted.getIncome(), transferRecord2));
 
         converted.setOutcome(transferRecord1.getTotal().negate());
-        converted.setOutcomeAccountName(convertAccount(transferRecord1));
+        converted.setOutcomeAccountName(convertAccount(transferRecord1, NO_DESCRIPTION_RULES));
         converted.setOutcomeCurrencyShortTitle(transferRecord1.getCurrency());
+        converted.setOutcomeInBaseCurrency(toBaseCurrency(converted.getOutcome(), transferRecord1));
 
         return converted;
     }
@@ -90,10 +258,12 @@ public final class Converter {
         record1.setIncome(null);
         record1.setIncomeAccountName(null);
         record1.setIncomeCurrencyShortTitle(null);
+        record1.setIncomeInBaseCurrency(null);
 
         record2.setOutcome(null);
         record2.setOutcomeAccountName(null);
         record2.setOutcomeCurrencyShortTitle(null);
+        record2.setOutcomeInBaseCurrency(null);
 
         return Pair.of(record1, record2);
     }
@@ -108,17 +278,150 @@ public final class Converter {
         return Collections.unmodifiableMap(result);
     }
 
+    public RewriteRules getRewriteRules() {
+        return rewriteRules;
+    }
+
+    public long[] getRuleHits() {
+        return ruleHits.clone();
+    }
+
     /* IMPLEMENTATION */
 
-    private String convertAccount(HomeMoneyCsvRecord record) {
-        String account = record.getAccount();
+    private static void checkRow(HomeMoneyBatch batch, int row) {
+        //@formatter:off
+        if (       row >= batch.size()
+                || batch.getAccountIdColumn()[row] == Dictionary.NONE
+                || batch.getCurrencyIdColumn()[row] == Dictionary.NONE
+                || batch.getDateColumn()[row] == EpochDays.NONE
+                || batch.getTotalColumn()[row] == Amounts.NONE) {
+            throw new IllegalArgumentException("row == " + row);
+        }
+        //@formatter:on
+    }
+
+    private static void checkTransferRows(HomeMoneyBatch batch, int row) {
+        checkRow(batch, row + 1);
 
+        long[] totals = batch.getTotalColumn();
+        int[] transferIds = batch.getTransferIdColumn();
+        if (totals[row] >= 0) {
+            throw new IllegalArgumentException("row == " + row);
+        }
+        if (transferIds[row + 1] == Dictionary.NONE || totals[row + 1] <= 0) {
+            throw new IllegalArgumentException("row == " + (row + 1));
+        }
+        if (batch.getAccountIdColumn()[row + 1] != transferIds[row]) {
+            throw new IllegalArgumentException("row == " + row + "; row == " + (row + 1));
+        }
+    }
+
+    private String convertAccount(HomeMoneyCsvRecord record, int[] descriptionRules) {
+        return convertAccount(rewrite(Target.ACCOUNT, record.getAccount(), descriptionRules), record.getCurrency());
+    }
+
+    private String convertAccount(String account, Currency currency) {
         if (multiCurrencyAccounts.contains(account)) {
-            account += " (" + record.getCurrency().getCurrencyCode() + ')';
+            account += " (" + currency.getCurrencyCode() + ')';
         }
-        convertedAccounts.computeIfAbsent(account, (key) -> new HashSet<>()).add(record.getCurrency());
+        convertedAccounts.computeIfAbsent(account, (key) -> new HashSet<>()).add(currency);
 
         return account;
     }
 
+    private int convertAccount(HomeMoneyBatch batch, int accountId, int currencyId, ZenMoneyBatch converted,
+            int[] convertedAccountIds, int[] descriptionRules) {
+        String account = batch.getAccounts().decode(accountId);
+        int rule = rewriteRules.isEmpty() ? RewriteRules.NONE : findRule(Target.ACCOUNT, account, descriptionRules);
+
+        if (rule != RewriteRules.NONE) {
+            return converted.getAccounts()
+                    .encode(convertAccount(rewriteRules.getValue(rule), batch.getCurrencies().decode(currencyId)));
+        }
+
+        int accountTableIndex = accountId * batch.getCurrencies().size() + currencyId;
+        if (convertedAccountIds[accountTableIndex] == Dictionary.NONE) {
+            convertedAccountIds[accountTableIndex] = converted.getAccounts()
+                    .encode(convertAccount(account, batch.getCurrencies().decode(currencyId)));
+        }
+
+        return convertedAccountIds[accountTableIndex];
+    }
+
+    private int[] getRateIndexes(HomeMoneyBatch batch) {
+        if (exchangeRates == null) {
+            return null;
+        }
+
+        List<Currency> currencies = batch.getCurrencies().getValues();
+        int[] rateIndexes = new int[currencies.size()];
+
+        for (int currencyId = 0; currencyId < rateIndexes.length; currencyId++) {
+            Currency currency = currencies.get(currencyId);
+
+            rateIndexes[currencyId] = currency.equals(exchangeRates.getBaseCurrency()) ? BASE_CURRENCY_RATE_INDEX
+                    : exchangeRates.getCurrencyIndex(currency);
+        }
+
+        return rateIndexes;
+    }
+
+    private BigDecimal toBaseCurrency(BigDecimal amount, HomeMoneyCsvRecord record) {
+        if (exchangeRates == null) {
+            return null;
+        }
+
+        return exchangeRates.toBaseCurrency(amount, record.getCurrency(), EpochDays.fromDate(record.getDate()));
+    }
+
+    private BigDecimal toBaseCurrency(long total, int totalScale, int currencyId, int date, int[] rateIndexes) {
+        if (rateIndexes == null) {
+            return null;
+        }
+
+        BigDecimal amount = Amounts.toBigDecimal(total, totalScale);
+        int rateIndex = rateIndexes[currencyId];
+
+        if (rateIndex == BASE_CURRENCY_RATE_INDEX) {
+            return amount;
+        }
+
+        return exchangeRates.toBaseCurrency(amount, exchangeRates.getRate(date, rateIndex));
+    }
+
+    private int[] findDescriptionRules(String description) {
+        return rewriteRules.isEmpty() ? NO_DESCRIPTION_RULES : rewriteRules.findDescriptionRules(description);
+    }
+
+    private int[] findDescriptionRules(HomeMoneyBatch batch, int descriptionId, int[][] descriptionRules) {
+        if (descriptionId == Dictionary.NONE) {
+            return NO_DESCRIPTION_RULES;
+        }
+
+        if (descriptionRules[descriptionId] == null) {
+            descriptionRules[descriptionId] = findDescriptionRules(batch.getDescriptions().decode(descriptionId));
+        }
+
+        return descriptionRules[descriptionId];
+    }
+
+    private int findRule(Target target, String value, int[] descriptionRules) {
+        int rule = descriptionRules[target.ordinal()];
+
+        if (rule == RewriteRules.NONE) {
+            rule = rewriteRules.findExactRule(target, value);
+        }
+        if (rule != RewriteRules.NONE) {
+            ruleHits[rule]++;
+        }
+
+        return rule;
+    }
+
+    private String rewrite(Target target, String value, int[] descriptionRules) {
+        int rule = findRule(target, value, descriptionRules);
+
+        return rule == RewriteRules.NONE ? value : rewriteRules.getValue(rule);
+    }
+
 }
@@ -0,0 +1,131 @@
+package converter;
+
+import model.commons.EpochDays;
+import model.rates.ExchangeRateCsvRecord;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+/*
+ * Rates are kept in a flat array indexed by day (relative to the first day of the table) and currency column, the
+ * columns are looked up by ISO 4217 numeric code. Missing days are filled with the last known rate.
+ */
+public final class ExchangeRates {
+
+    public static final int NONE = -1;
+
+    private static final int NUMERIC_CODE_COUNT = 1000;
+    private static final int DEFAULT_SCALE = 2;
+
+    private final Currency baseCurrency;
+    private final int baseScale;
+    private final int[] currencyIndexes = new int[NUMERIC_CODE_COUNT];
+    private final int currencyCount;
+    private final int firstDay;
+    private final int lastDay;
+    private final BigDecimal[] rates;
+
+    public ExchangeRates(Currency baseCurrency, List<ExchangeRateCsvRecord> records) {
+        if (baseCurrency == null) {
+            throw new IllegalArgumentException("baseCurrency == null");
+        }
+
+        this.baseCurrency = baseCurrency;
+        this.baseScale = baseCurrency.getDefaultFractionDigits() < 0 ? DEFAULT_SCALE
+                : baseCurrency.getDefaultFractionDigits();
+
+        Arrays.fill(currencyIndexes, NONE);
+
+        int columns = 0, first = Integer.MAX_VALUE, last = Integer.MIN_VALUE;
+        for (ExchangeRateCsvRecord record : records) {
+            if (record.getCurrency() == null || record.getDate() == null || record.getRate() == null
+                    || record.getRate().signum() <= 0) {
+                throw new IllegalArgumentException("Invalid exchange rate: currency == " + record.getCurrency()
+                        + "; date == " + record.getDate() + "; rate == " + record.getRate());
+            }
+
+            int numericCode = checkNumericCode(record.getCurrency());
+            if (currencyIndexes[numericCode] == NONE) {
+                currencyIndexes[numericCode] = columns++;
+            }
+
+            int day = EpochDays.fromDate(record.getDate());
+            first = Math.min(first, day);
+            last = Math.max(last, day);
+        }
+
+        this.currencyCount = columns;
+        this.firstDay = first;
+        this.lastDay = last;
+        this.rates = new BigDecimal[columns == 0 ? 0 : Math.multiplyExact(last - first + 1, columns)];
+
+        for (ExchangeRateCsvRecord record : records) {
+            int day = EpochDays.fromDate(record.getDate());
+
+            rates[(day - first) * columns + currencyIndexes[record.getCurrency().getNumericCode()]] = record.getRate();
+        }
+
+        // forward fill
+        for (int i = columns; i < rates.length; i++) {
+            if (rates[i] == null) {
+                rates[i] = rates[i - columns];
+            }
+        }
+    }
+
+    /* INTERFACE */
+
+    public int getCurrencyIndex(Currency currency) {
+        int numericCode = currency == null ? NONE : currency.getNumericCode();
+
+        return numericCode < 0 || numericCode >= NUMERIC_CODE_COUNT ? NONE : currencyIndexes[numericCode];
+    }
+
+    public BigDecimal getRate(int epochDay, int currencyIndex) {
+        if (currencyIndex == NONE || currencyCount == 0 || epochDay < firstDay) {
+            return null;
+        }
+
+        return rates[(Math.min(epochDay, lastDay) - firstDay) * currencyCount + currencyIndex];
+    }
+
+    public BigDecimal toBaseCurrency(BigDecimal amount, Currency currency, int epochDay) {
+        if (amount == null || currency == null) {
+            return null;
+        }
+        if (currency.equals(baseCurrency)) {
+            return amount;
+        }
+
+        return toBaseCurrency(amount, getRate(epochDay, getCurrencyIndex(currency)));
+    }
+
+    public BigDecimal toBaseCurrency(BigDecimal amount, BigDecimal rate) {
+        if (amount == null || rate == null) {
+            return null;
+        }
+
+        return amount.multiply(rate).setScale(baseScale, RoundingMode.HALF_EVEN);
+    }
+
+    /* PROPERTIES */
+
+    public Currency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /* IMPLEMENTATION */
+
+    private static int checkNumericCode(Currency currency) {
+        int numericCode = currency.getNumericCode();
+        if (numericCode < 0 || numericCode >= NUMERIC_CODE_COUNT) {
+            throw new IllegalArgumentException("Currency without ISO 4217 numeric code: " + currency);
+        }
+
+        return numericCode;
+    }
+
+}
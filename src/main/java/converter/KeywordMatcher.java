@@ -0,0 +1,162 @@
+package converter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/*
+ * Aho-Corasick automaton: all keywords are found in a single pass over the text, so the matching cost doesn't depend
+ * on the number of keywords. Edges of each node are kept as sorted char array for binary search.
+ */
+final class KeywordMatcher {
+
+    interface MatchHandler {
+
+        void onMatch(int keyword, int start);
+
+    }
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failures;
+    private final int[][] outputs;
+    private final int[] keywordLengths;
+
+    KeywordMatcher(List<String> keywords) {
+        List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+
+        edges.add(new TreeMap<>());
+        ownOutputs.add(new ArrayList<>());
+
+        keywordLengths = new int[keywords.size()];
+        for (int keyword = 0; keyword < keywords.size(); keyword++) {
+            String text = normalize(keywords.get(keyword));
+            int node = 0;
+
+            for (int i = 0; i < text.length(); i++) {
+                Integer next = edges.get(node).get(text.charAt(i));
+
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new TreeMap<>());
+                    ownOutputs.add(new ArrayList<>());
+                    edges.get(node).put(text.charAt(i), next);
+                }
+
+                node = next;
+            }
+
+            ownOutputs.get(node).add(keyword);
+            keywordLengths[keyword] = text.length();
+        }
+
+        int nodeCount = edges.size();
+
+        edgeChars = new char[nodeCount][];
+        edgeTargets = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            TreeMap<Character, Integer> nodeEdges = edges.get(node);
+
+            edgeChars[node] = nodeEdges.isEmpty() ? NO_CHARS : new char[nodeEdges.size()];
+            edgeTargets[node] = nodeEdges.isEmpty() ? NO_INTS : new int[nodeEdges.size()];
+
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : nodeEdges.entrySet()) {
+                edgeChars[node][i] = edge.getKey();
+                edgeTargets[node][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // breadth-first, so failure links of shallower nodes (and their outputs) are ready when needed
+        failures = new int[nodeCount];
+        outputs = new int[nodeCount][];
+        outputs[0] = toArray(ownOutputs.get(0), NO_INTS);
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            failures[child] = 0;
+            outputs[child] = toArray(ownOutputs.get(child), outputs[0]);
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                char c = edgeChars[node][i];
+                int child = edgeTargets[node][i];
+                int failure = failures[node];
+
+                while (failure != 0 && next(failure, c) < 0) {
+                    failure = failures[failure];
+                }
+                failure = Math.max(next(failure, c), 0);
+
+                failures[child] = failure;
+                outputs[child] = toArray(ownOutputs.get(child), outputs[failure]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /* INTERFACE */
+
+    void match(String text, MatchHandler handler) {
+        if (text == null) {
+            return;
+        }
+
+        String normalized = normalize(text);
+        int node = 0;
+
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            int next;
+
+            while ((next = next(node, c)) < 0 && node != 0) {
+                node = failures[node];
+            }
+            node = Math.max(next, 0);
+
+            for (int keyword : outputs[node]) {
+                handler.onMatch(keyword, i + 1 - keywordLengths[keyword]);
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /* IMPLEMENTATION */
+
+    private int next(int node, char c) {
+        int i = Arrays.binarySearch(edgeChars[node], c);
+
+        return i < 0 ? -1 : edgeTargets[node][i];
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+
+        int[] result = Arrays.copyOf(inherited, inherited.length + own.size());
+        for (int i = 0; i < own.size(); i++) {
+            result[inherited.length + i] = own.get(i);
+        }
+
+        return result;
+    }
+
+}
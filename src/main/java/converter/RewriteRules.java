@@ -0,0 +1,100 @@
+package converter;
+
+import model.rules.RewriteRuleCsvRecord;
+import model.rules.RewriteRuleCsvRecord.Match;
+import model.rules.RewriteRuleCsvRecord.Target;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class RewriteRules {
+
+    public static final int NONE = -1;
+    public static final RewriteRules EMPTY = new RewriteRules(List.of());
+
+    private final List<RewriteRuleCsvRecord> rules;
+    private final Map<Target, Map<String, Integer>> exactRules = new EnumMap<>(Target.class);
+    private final int[] keywordRules;
+    private final KeywordMatcher keywordMatcher;
+
+    public RewriteRules(List<RewriteRuleCsvRecord> rules) {
+        this.rules = List.copyOf(rules);
+
+        for (Target target : Target.values()) {
+            exactRules.put(target, new HashMap<>());
+        }
+
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordRuleList = new ArrayList<>();
+
+        for (int rule = 0; rule < this.rules.size(); rule++) {
+            RewriteRuleCsvRecord record = this.rules.get(rule);
+
+            if (record.getTarget() == null || record.getMatch() == null || StringUtils.isEmpty(record.getPattern())
+                    || record.getValue() == null) {
+                throw new IllegalArgumentException("Rule " + (rule + 1) + " is incomplete: " + record);
+            }
+
+            if (record.getMatch() == Match.EXACT) {
+                exactRules.get(record.getTarget()).putIfAbsent(record.getPattern(), rule);   // first rule wins
+            } else {
+                keywords.add(record.getPattern());
+                keywordRuleList.add(rule);
+            }
+        }
+
+        this.keywordRules = keywordRuleList.stream().mapToInt(Integer::intValue).toArray();
+        this.keywordMatcher = new KeywordMatcher(keywords);
+    }
+
+    /* INTERFACE */
+
+    public int findExactRule(Target target, String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        return exactRules.get(target).getOrDefault(value, NONE);
+    }
+
+    public int[] findDescriptionRules(String description) {
+        int[] result = new int[Target.values().length];
+
+        Arrays.fill(result, NONE);
+
+        if (keywordRules.length > 0) {
+            keywordMatcher.match(description, (keyword, start) -> {
+                int rule = keywordRules[keyword];
+                RewriteRuleCsvRecord record = rules.get(rule);
+                int target = record.getTarget().ordinal();
+
+                if ((record.getMatch() == Match.KEYWORD || start == 0) && (result[target] == NONE
+                        || result[target] > rule)) {
+                    result[target] = rule;  // first rule wins
+                }
+            });
+        }
+
+        return result;
+    }
+
+    /* PROPERTIES */
+
+    public List<RewriteRuleCsvRecord> getRules() {
+        return rules;
+    }
+
+    public String getValue(int rule) {
+        return rules.get(rule).getValue();
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+}
@@ -0,0 +1,94 @@
+package diff;
+
+/*
+ * Multiset of record hashes in two flat arrays (open addressing, linear probing). A slot keeps its hash after its
+ * count drops to zero, so probe sequences stay intact; such slots are dropped on resize.
+ */
+public final class HashIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] hashes;
+    private int[] counts;   // count + 1 for used slots, 0 for free ones
+    private int usedSlots;
+    private long size;
+
+    public HashIndex() {
+        this.hashes = new long[MIN_CAPACITY];
+        this.counts = new int[MIN_CAPACITY];
+    }
+
+    /* INTERFACE */
+
+    public void add(long hash) {
+        if ((usedSlots + 1) * 2L > counts.length) {
+            resize();
+        }
+
+        int slot = findSlot(hashes, counts, hash);
+        if (counts[slot] == 0) {
+            hashes[slot] = hash;
+            counts[slot] = 1;
+            usedSlots++;
+        }
+
+        counts[slot]++;
+        size++;
+    }
+
+    public boolean remove(long hash) {
+        int slot = findSlot(hashes, counts, hash);
+        if (counts[slot] <= 1) {
+            return false;
+        }
+
+        counts[slot]--;
+        size--;
+
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /* IMPLEMENTATION */
+
+    private static int findSlot(long[] hashes, int[] counts, long hash) {
+        int mask = counts.length - 1;
+        int slot = (int) hash & mask;
+
+        while (counts[slot] != 0 && hashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void resize() {
+        int liveSlots = 0;
+        for (int count : counts) {
+            if (count > 1) {
+                liveSlots++;
+            }
+        }
+
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, liveSlots + 1)) * 4);
+        long[] newHashes = new long[capacity];
+        int[] newCounts = new int[capacity];
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 1) {
+                int slot = findSlot(newHashes, newCounts, hashes[i]);
+
+                newHashes[slot] = hashes[i];
+                newCounts[slot] = counts[i];
+            }
+        }
+
+        hashes = newHashes;
+        counts = newCounts;
+        usedSlots = liveSlots;
+    }
+
+}
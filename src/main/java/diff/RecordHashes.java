@@ -0,0 +1,78 @@
+package diff;
+
+import model.homemoney.HomeMoneyCsvRecord;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Date;
+
+/*
+ * 64-bit hashes of the fields compared by HomeMoneyCsvRecord.equals. Records with equal hashes are treated as equal,
+ * with a million records a collision is about as likely as one in 10^7 runs.
+ */
+public final class RecordHashes {
+
+    private static final long SEED = 0xCBF29CE484222325L;       // FNV-1a offset basis
+    private static final long MULTIPLIER = 0x100000001B3L;      // FNV-1a prime
+    private static final long NULL_LENGTH = -1;
+
+    private RecordHashes() {
+    }
+
+    /* INTERFACE */
+
+    public static long combine(long first, long second) {
+        return finish((first * MULTIPLIER) ^ Long.rotateLeft(second, 31));
+    }
+
+    public static long of(HomeMoneyCsvRecord record) {
+        Currency currency = record.getCurrency();
+        Date date = record.getDate();
+        BigDecimal total = record.getTotal();
+
+        long hash = SEED;
+
+        hash = mix(hash, record.getAccount());
+        hash = mix(hash, record.getCategory());
+        hash = mix(hash, currency == null ? null : currency.getCurrencyCode());
+        hash = mix(hash, date == null ? NULL_LENGTH : date.getTime());
+        hash = mix(hash, record.getDescription());
+        hash = mix(hash, total == null ? null : total.toString());  // unlike compareTo, equals tells scales apart
+        hash = mix(hash, record.getTransfer());
+
+        return finish(hash);
+    }
+
+    /* IMPLEMENTATION */
+
+    // splitmix64 finalizer, spreads FNV's weak high bits over the whole value
+    private static long finish(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+
+        return hash ^ (hash >>> 31);
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xFF)) * MULTIPLIER;
+        }
+
+        return hash;
+    }
+
+    // the length keeps field boundaries apart, e.g. ("ab", "c") from ("a", "bc")
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, NULL_LENGTH);
+        }
+
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * MULTIPLIER;
+        }
+
+        return hash;
+    }
+
+}
@@ -0,0 +1,111 @@
+package diff;
+
+import model.homemoney.HomeMoneyCsvRecord;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Groups records the way they're converted: two consecutive transfer records make a single unit, any other record is
+ * a unit on its own. Diffing whole units keeps both legs of a changed transfer together.
+ */
+public final class RecordUnits implements Iterator<RecordUnits.Unit> {
+
+    public static final class Unit {
+
+        private final int ordinal;
+        private final int recordNumber;
+        private final HomeMoneyCsvRecord first;
+        private final HomeMoneyCsvRecord second;
+        private final long hash;
+
+        private Unit(int ordinal, int recordNumber, HomeMoneyCsvRecord first, HomeMoneyCsvRecord second) {
+            this.ordinal = ordinal;
+            this.recordNumber = recordNumber;
+            this.first = first;
+            this.second = second;
+            this.hash = second == null ? RecordHashes.of(first)
+                    : RecordHashes.combine(RecordHashes.of(first), RecordHashes.of(second));
+        }
+
+        /* PROPERTIES */
+
+        public HomeMoneyCsvRecord getFirst() {
+            return first;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        // 1-based number of the first record of the unit
+        public int getRecordNumber() {
+            return recordNumber;
+        }
+
+        public HomeMoneyCsvRecord getSecond() {
+            return second;
+        }
+
+        public int size() {
+            return second == null ? 1 : 2;
+        }
+
+    }
+
+    private final Iterator<HomeMoneyCsvRecord> records;
+    private HomeMoneyCsvRecord pending;
+    private int unitCount;
+    private int recordCount;
+
+    public RecordUnits(Iterator<HomeMoneyCsvRecord> records) {
+        this.records = records;
+    }
+
+    /* INTERFACE */
+
+    @Override
+    public boolean hasNext() {
+        return pending != null || records.hasNext();
+    }
+
+    @Override
+    public Unit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        HomeMoneyCsvRecord first = take();
+        int recordNumber = recordCount;
+        HomeMoneyCsvRecord second = null;
+
+        if (first.isValid() && first.isTransfer() && hasNext()) {
+            HomeMoneyCsvRecord next = take();
+
+            if (next.isValid() && next.isTransfer()) {
+                second = next;
+            } else {
+                pending = next;
+                recordCount--;
+            }
+        }
+
+        return new Unit(unitCount++, recordNumber, first, second);
+    }
+
+    /* IMPLEMENTATION */
+
+    private HomeMoneyCsvRecord take() {
+        HomeMoneyCsvRecord record = pending != null ? pending : records.next();
+
+        pending = null;
+        recordCount++;
+
+        return record;
+    }
+
+}
@@ -0,0 +1,251 @@
+package diff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * External sort of (hash, ordinal) pairs for inputs too big for HashIndex. Pairs are collected into runs of bounded
+ * size, each run is sorted in memory and spilled to a temporary file, then the runs are merged while being read.
+ */
+public final class SortedHashRuns implements Closeable {
+
+    public final class Cursor implements Closeable {
+
+        private final PriorityQueue<RunReader> readers =
+                new PriorityQueue<>(Comparator.comparingLong(RunReader::getHash).thenComparingInt(RunReader::getOrdinal));
+        private long hash;
+        private int ordinal;
+
+        private Cursor() throws IOException {
+            try {
+                for (Path runFile : runFiles) {
+                    RunReader reader = new RunReader(runFile);
+
+                    if (reader.next()) {
+                        readers.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+
+            readers.clear();
+        }
+
+        public boolean next() throws IOException {
+            RunReader reader = readers.poll();
+            if (reader == null) {
+                return false;
+            }
+
+            hash = reader.getHash();
+            ordinal = reader.getOrdinal();
+
+            if (reader.next()) {
+                readers.add(reader);
+            } else {
+                reader.close();
+            }
+
+            return true;
+        }
+
+        /* PROPERTIES */
+
+        public long getHash() {
+            return hash;
+        }
+
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+    }
+
+    private static final class RunReader implements Closeable {
+
+        private final DataInputStream input;
+        private long hash;
+        private int ordinal;
+
+        private RunReader(Path runFile) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), BUFFER_SIZE));
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+        private boolean next() throws IOException {
+            try {
+                hash = input.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+
+            ordinal = input.readInt();
+
+            return true;
+        }
+
+        /* PROPERTIES */
+
+        private long getHash() {
+            return hash;
+        }
+
+        private int getOrdinal() {
+            return ordinal;
+        }
+
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final Path directory;
+    private final long[] hashes;
+    private final int[] ordinals;
+    private final List<Path> runFiles = new ArrayList<>();
+    private int size;
+
+    public SortedHashRuns(Path directory, int runSize) {
+        if (runSize <= 0) {
+            throw new IllegalArgumentException("runSize == " + runSize);
+        }
+
+        this.directory = directory;
+        this.hashes = new long[runSize];
+        this.ordinals = new int[runSize];
+    }
+
+    /* INTERFACE */
+
+    public void add(long hash, int ordinal) throws IOException {
+        if (size == hashes.length) {
+            spill();
+        }
+
+        hashes[size] = hash;
+        ordinals[size] = ordinal;
+        size++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Path runFile : runFiles) {
+            Files.deleteIfExists(runFile);
+        }
+
+        runFiles.clear();
+    }
+
+    // pairs are returned ordered by hash, then by ordinal
+    public Cursor sorted() throws IOException {
+        if (size > 0) {
+            spill();
+        }
+
+        return new Cursor();
+    }
+
+    /* IMPLEMENTATION */
+
+    private void spill() throws IOException {
+        sort(0, size);
+
+        Path runFile = Files.createTempFile(directory, "hm2zm-run", ".tmp");
+        runFiles.add(runFile);
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(runFile), BUFFER_SIZE))) {
+            for (int i = 0; i < size; i++) {
+                output.writeLong(hashes[i]);
+                output.writeInt(ordinals[i]);
+            }
+        }
+
+        size = 0;
+    }
+
+    private int compare(int i, int j) {
+        int result = Long.compare(hashes[i], hashes[j]);
+
+        return result != 0 ? result : Integer.compare(ordinals[i], ordinals[j]);
+    }
+
+    // quicksort of both arrays at once; recursing into the smaller part only keeps the stack logarithmic
+    private void sort(int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int middle = (from + to) >>> 1;
+
+            // median of three as the pivot, moved to the start
+            if (compare(middle, from) < 0) {
+                swap(middle, from);
+            }
+            if (compare(to - 1, from) < 0) {
+                swap(to - 1, from);
+            }
+            if (compare(to - 1, middle) < 0) {
+                swap(to - 1, middle);
+            }
+            swap(from, middle);
+
+            int last = from;
+            for (int i = from + 1; i < to; i++) {
+                if (compare(i, from) < 0) {
+                    swap(++last, i);
+                }
+            }
+            swap(from, last);
+
+            if (last - from < to - last - 1) {
+                sort(from, last);
+                from = last + 1;
+            } else {
+                sort(last + 1, to);
+                to = last;
+            }
+        }
+
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        long hash = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = hash;
+
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+}
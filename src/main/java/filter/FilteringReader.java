@@ -0,0 +1,244 @@
+package filter;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/*
+ * Passes through the header and the lines of records matching the filter. Quotes are ignored by the CSV parser, so
+ * a line is split into columns at separators only and just the filtered columns are extracted. Two consecutive
+ * transfer lines are accepted or rejected together, as they make a single converted record. Sorted input ends as
+ * soon as a record is past the date range. Numbers of the passed lines map back to input lines, so that parsing
+ * errors point into the input file.
+ */
+public final class FilteringReader extends Reader {
+
+    private static final String LINE_END = "\n";
+    private static final String DATE_COLUMN = "date";
+    private static final String ACCOUNT_COLUMN = "account";
+    private static final String CURRENCY_COLUMN = "currency";
+    private static final String TRANSFER_COLUMN = "transfer";
+
+    private final BufferedReader origin;
+    private final char separator;
+    private final RecordFilter filter;
+    private final InputOrder order;
+
+    private boolean headerRead;
+    private int dateColumn = -1;
+    private int accountColumn = -1;
+    private int currencyColumn = -1;
+    private int transferColumn = -1;
+
+    private String pendingLine;
+    private String buffer = "";
+    private int position;
+    private boolean endOfInput;
+    private boolean stoppedEarly;
+    private long rejectedCount;
+
+    // lines from runStarts[i] on (1-based, in the passed stream) follow runSkips[i] lines dropped from the input
+    private long[] runStarts = new long[16];
+    private long[] runSkips = new long[16];
+    private int runCount;
+    private long readLineCount;
+    private long passedLineCount;
+
+    public FilteringReader(BufferedReader origin, char separator, RecordFilter filter, InputOrder order) {
+        this.origin = origin;
+        this.separator = separator;
+        this.filter = filter;
+        this.order = order;
+    }
+
+    /* INTERFACE */
+
+    @Override
+    public void close() throws IOException {
+        origin.close();
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        while (position == buffer.length()) {
+            if (endOfInput) {
+                return -1;
+            }
+
+            fill();
+        }
+
+        int count = Math.min(length, buffer.length() - position);
+        buffer.getChars(position, position + count, chars, offset);
+        position += count;
+
+        return count;
+    }
+
+    /* PROPERTIES */
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    // true if the rest of sorted input was skipped
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    // 1-based number of the input line passed as the given line
+    public long toInputLine(long line) {
+        int run = Arrays.binarySearch(runStarts, 0, runCount, line);
+        if (run < 0) {
+            run = -run - 2;     // the run starting before the line
+        }
+
+        return run < 0 ? line : line + runSkips[run];
+    }
+
+    /* IMPLEMENTATION */
+
+    private String getColumn(String line, int column) {
+        if (column < 0) {
+            return null;
+        }
+
+        int start = 0;
+        for (int i = 0; i < column; i++) {
+            start = line.indexOf(separator, start) + 1;
+            if (start == 0) {
+                return null;
+            }
+        }
+
+        int end = line.indexOf(separator, start);
+        String value = StringUtils.stripStart(end < 0 ? line.substring(start) : line.substring(start, end), null);
+
+        return value.isEmpty() ? null : value;  // same as leading whitespace trimming & blank columns processing
+    }
+
+    private void fill() throws IOException {
+        buffer = "";
+        position = 0;
+
+        while (true) {
+            String line = pendingLine != null ? pendingLine : origin.readLine();
+            pendingLine = null;
+
+            if (line == null) {
+                endOfInput = true;
+
+                return;
+            }
+
+            readLineCount++;
+            if (!headerRead) {
+                readHeader(line);
+                pass(line + LINE_END, 1);
+
+                return;
+            }
+            if (line.isEmpty()) {
+                pass(LINE_END, 1);
+
+                return;
+            }
+
+            String second = null;
+            if (isTransfer(line)) {
+                second = origin.readLine();
+                if (second != null && !isTransfer(second)) {
+                    pendingLine = second;
+                    second = null;
+                } else if (second != null) {
+                    readLineCount++;
+                }
+            }
+
+            int date = RecordFilter.parseDate(getColumn(line, dateColumn));
+            if (filter.isPastRange(date, order)) {
+                endOfInput = true;
+                stoppedEarly = true;
+
+                return;
+            }
+
+            if (matches(line, date, second)) {
+                if (second == null) {
+                    pass(line + LINE_END, 1);
+                } else {
+                    pass(line + LINE_END + second + LINE_END, 2);
+                }
+
+                return;
+            }
+
+            rejectedCount += second == null ? 1 : 2;
+        }
+    }
+
+    private boolean isTransfer(String line) {
+        return getColumn(line, transferColumn) != null;
+    }
+
+    private boolean matches(String line, int date, String second) {
+        if (!filter.matchesDate(date)) {
+            return false;
+        }
+
+        if (!filter.matchesAccount(getColumn(line, accountColumn), getColumn(line, transferColumn))
+                && (second == null
+                || !filter.matchesAccount(getColumn(second, accountColumn), getColumn(second, transferColumn)))) {
+            return false;
+        }
+
+        return filter.matchesCurrency(getColumn(line, currencyColumn))
+                || (second != null && filter.matchesCurrency(getColumn(second, currencyColumn)));
+    }
+
+    private void pass(String lines, int lineCount) {
+        long skipped = readLineCount - passedLineCount - lineCount;
+
+        if (skipped != (runCount == 0 ? 0 : runSkips[runCount - 1])) {
+            if (runCount == runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, runCount * 2);
+                runSkips = Arrays.copyOf(runSkips, runCount * 2);
+            }
+
+            runStarts[runCount] = passedLineCount + 1;
+            runSkips[runCount] = skipped;
+            runCount++;
+        }
+
+        buffer = lines;
+        passedLineCount += lineCount;
+    }
+
+    private void readHeader(String line) {
+        String[] columns = StringUtils.splitPreserveAllTokens(line, separator);
+
+        for (int i = 0; i < columns.length; i++) {
+            String column = StringUtils.trim(columns[i]);
+
+            if (DATE_COLUMN.equalsIgnoreCase(column)) {
+                dateColumn = i;
+            } else if (ACCOUNT_COLUMN.equalsIgnoreCase(column)) {
+                accountColumn = i;
+            } else if (CURRENCY_COLUMN.equalsIgnoreCase(column)) {
+                currencyColumn = i;
+            } else if (TRANSFER_COLUMN.equalsIgnoreCase(column)) {
+                transferColumn = i;
+            }
+        }
+
+        headerRead = true;
+    }
+
+}
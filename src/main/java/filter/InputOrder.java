@@ -0,0 +1,9 @@
+package filter;
+
+public enum InputOrder {
+
+    UNSORTED,
+    ASCENDING,
+    DESCENDING
+
+}
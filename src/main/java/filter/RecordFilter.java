@@ -0,0 +1,106 @@
+package filter;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ * Criteria checked against raw column values of HomeMoney records, so rejected records are never bound to beans.
+ * Dates are compared as yyyyMMdd numbers parsed straight from the 'dd.MM.yyyy' text.
+ */
+public final class RecordFilter {
+
+    public static final int UNKNOWN_DATE = -1;
+
+    private final int from;
+    private final int to;
+    private final Set<String> accounts;
+    private final Set<String> currencyCodes;
+
+    public RecordFilter(LocalDate from, LocalDate to, Set<String> accounts, Set<Currency> currencies) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from == " + from + "; to == " + to);
+        }
+
+        this.from = from == null ? Integer.MIN_VALUE : toNumber(from);
+        this.to = to == null ? Integer.MAX_VALUE : toNumber(to);
+        this.accounts = Set.copyOf(accounts);
+        this.currencyCodes = currencies.stream().map(Currency::getCurrencyCode).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /* INTERFACE */
+
+    // both values are matched, so both legs of a transfer pass; records without account pass to be reported
+    public boolean matchesAccount(String account, String transfer) {
+        return accounts.isEmpty() || account == null || accounts.contains(account)
+                || (transfer != null && accounts.contains(transfer));
+    }
+
+    // records without currency pass to be reported
+    public boolean matchesCurrency(String currencyCode) {
+        return currencyCodes.isEmpty() || currencyCode == null || currencyCodes.contains(currencyCode);
+    }
+
+    // records with unparseable dates pass, so they're reported by the conversion
+    public boolean matchesDate(int date) {
+        return date == UNKNOWN_DATE || (date >= from && date <= to);
+    }
+
+    public boolean isPastRange(int date, InputOrder order) {
+        if (date == UNKNOWN_DATE) {
+            return false;
+        }
+
+        switch (order) {
+            case ASCENDING:
+                return date > to;
+            case DESCENDING:
+                return date < from;
+            default:
+                return false;
+        }
+    }
+
+    // 'dd.MM.yyyy' as yyyyMMdd or UNKNOWN_DATE
+    public static int parseDate(String value) {
+        if (value == null || value.length() != 10 || value.charAt(2) != '.' || value.charAt(5) != '.') {
+            return UNKNOWN_DATE;
+        }
+
+        int day = parseDigits(value, 0, 2), month = parseDigits(value, 3, 5), year = parseDigits(value, 6, 10);
+        if (day < 0 || month < 0 || year < 0) {
+            return UNKNOWN_DATE;
+        }
+
+        return year * 10000 + month * 100 + day;
+    }
+
+    /* PROPERTIES */
+
+    public boolean isEmpty() {
+        return from == Integer.MIN_VALUE && to == Integer.MAX_VALUE && accounts.isEmpty() && currencyCodes.isEmpty();
+    }
+
+    /* IMPLEMENTATION */
+
+    private static int parseDigits(String value, int from, int to) {
+        int result = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    private static int toNumber(LocalDate date) {
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+}
@@ -0,0 +1,46 @@
+package model.commons;
+
+import java.math.BigDecimal;
+
+public final class Amounts {
+
+    public static final long NONE = Long.MIN_VALUE;
+
+    private Amounts() {
+    }
+
+    /* INTERFACE */
+
+    public static byte scaleOf(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        if (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE) {
+            throw new ArithmeticException("amount == " + amount);
+        }
+
+        return (byte) amount.scale();
+    }
+
+    public static BigDecimal toBigDecimal(long unscaled, int scale) {
+        if (unscaled == NONE) {
+            return null;
+        }
+
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    public static long unscaledOf(BigDecimal amount) {
+        if (amount == null) {
+            return NONE;
+        }
+
+        long unscaled = amount.unscaledValue().longValueExact();
+        if (unscaled == NONE) {
+            throw new ArithmeticException("amount == " + amount);
+        }
+
+        return unscaled;
+    }
+
+}
@@ -0,0 +1,54 @@
+package model.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class Dictionary<T> {
+
+    public static final int NONE = -1;
+
+    private final Map<T, Integer> ids;
+    private final List<T> values;
+
+    public Dictionary() {
+        this.ids = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+
+    public Dictionary(Dictionary<T> other) {
+        this.ids = new HashMap<>(other.ids);
+        this.values = new ArrayList<>(other.values);
+    }
+
+    /* INTERFACE */
+
+    public T decode(int id) {
+        return id == NONE ? null : values.get(id);
+    }
+
+    public int encode(T value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        return ids.computeIfAbsent(value, (key) -> {
+            values.add(key);
+
+            return values.size() - 1;
+        });
+    }
+
+    /* PROPERTIES */
+
+    public List<T> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+}
@@ -0,0 +1,32 @@
+package model.commons;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+public final class EpochDays {
+
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private EpochDays() {
+    }
+
+    /* INTERFACE */
+
+    public static int fromDate(Date date) {
+        if (date == null) {
+            return NONE;
+        }
+
+        return Math.toIntExact(date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+    }
+
+    public static Date toDate(int epochDay) {
+        if (epochDay == NONE) {
+            return null;
+        }
+
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+}
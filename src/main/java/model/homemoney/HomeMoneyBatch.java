@@ -0,0 +1,270 @@
+package model.homemoney;
+
+import model.commons.Amounts;
+import model.commons.Dictionary;
+import model.commons.EpochDays;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+public final class HomeMoneyBatch {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final Dictionary<String> accounts = new Dictionary<>();
+    private final Dictionary<String> categories = new Dictionary<>();
+    private final Dictionary<Currency> currencies = new Dictionary<>();
+    private final Dictionary<String> descriptions = new Dictionary<>();
+
+    private int size;
+    private int[] dates;
+    private long[] totals;
+    private byte[] totalScales;
+    private int[] accountIds;
+    private int[] categoryIds;
+    private int[] currencyIds;
+    private int[] descriptionIds;
+    private int[] transferIds;
+
+    public HomeMoneyBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HomeMoneyBatch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity == " + capacity);
+        }
+
+        this.dates = new int[capacity];
+        this.totals = new long[capacity];
+        this.totalScales = new byte[capacity];
+        this.accountIds = new int[capacity];
+        this.categoryIds = new int[capacity];
+        this.currencyIds = new int[capacity];
+        this.descriptionIds = new int[capacity];
+        this.transferIds = new int[capacity];
+    }
+
+    /* INTERFACE */
+
+    public int add(HomeMoneyCsvRecord record) {
+        if (record == null) {
+            throw new IllegalArgumentException("record == null");
+        }
+
+        // conversions may throw, so do them before touching the columns
+        int date = EpochDays.fromDate(record.getDate());
+        long total = Amounts.unscaledOf(record.getTotal());
+        byte totalScale = Amounts.scaleOf(record.getTotal());
+
+        //@formatter:off
+        return addRow(date, total, totalScale,
+                accounts.encode(record.getAccount()),
+                categories.encode(record.getCategory()),
+                currencies.encode(record.getCurrency()),
+                descriptions.encode(record.getDescription()),
+                accounts.encode(record.getTransfer()));
+        //@formatter:on
+    }
+
+    public int addRow(int date, long total, int totalScale, int accountId, int categoryId, int currencyId,
+            int descriptionId, int transferId) {
+        checkId(accounts, accountId);
+        checkId(categories, categoryId);
+        checkId(currencies, currencyId);
+        checkId(descriptions, descriptionId);
+        checkId(accounts, transferId);
+        if (totalScale < Byte.MIN_VALUE || totalScale > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("totalScale == " + totalScale);
+        }
+
+        if (size == dates.length) {
+            grow();
+        }
+
+        int row = size++;
+
+        dates[row] = date;
+        totals[row] = total;
+        totalScales[row] = (byte) totalScale;
+        accountIds[row] = accountId;
+        categoryIds[row] = categoryId;
+        currencyIds[row] = currencyId;
+        descriptionIds[row] = descriptionId;
+        transferIds[row] = transferId;
+
+        return row;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public HomeMoneyCsvRecord getRecord(int row) {
+        checkRow(row);
+
+        HomeMoneyCsvRecord record = new HomeMoneyCsvRecord();
+
+        record.setAccount(accounts.decode(accountIds[row]));
+        record.setCategory(categories.decode(categoryIds[row]));
+        record.setCurrency(currencies.decode(currencyIds[row]));
+        record.setDate(EpochDays.toDate(dates[row]));
+        record.setDescription(descriptions.decode(descriptionIds[row]));
+        record.setTotal(Amounts.toBigDecimal(totals[row], totalScales[row]));
+        record.setTransfer(accounts.decode(transferIds[row]));
+
+        return record;
+    }
+
+    /* PROPERTIES */
+
+    public Dictionary<String> getAccounts() {
+        return accounts;
+    }
+
+    public Dictionary<String> getCategories() {
+        return categories;
+    }
+
+    public Dictionary<Currency> getCurrencies() {
+        return currencies;
+    }
+
+    public Dictionary<String> getDescriptions() {
+        return descriptions;
+    }
+
+    /*
+     * Columns are the backing arrays, not copies, for loops over all rows that shouldn't pay for a range check per
+     * value. Only the first size() elements are rows, and adding rows may replace the arrays.
+     */
+
+    public int[] getAccountIdColumn() {
+        return accountIds;
+    }
+
+    public int[] getCategoryIdColumn() {
+        return categoryIds;
+    }
+
+    public int[] getCurrencyIdColumn() {
+        return currencyIds;
+    }
+
+    public int[] getDateColumn() {
+        return dates;
+    }
+
+    public int[] getDescriptionIdColumn() {
+        return descriptionIds;
+    }
+
+    public long[] getTotalColumn() {
+        return totals;
+    }
+
+    public byte[] getTotalScaleColumn() {
+        return totalScales;
+    }
+
+    public int[] getTransferIdColumn() {
+        return transferIds;
+    }
+
+    public int getAccountId(int row) {
+        checkRow(row);
+
+        return accountIds[row];
+    }
+
+    public int getCategoryId(int row) {
+        checkRow(row);
+
+        return categoryIds[row];
+    }
+
+    public int getCurrencyId(int row) {
+        checkRow(row);
+
+        return currencyIds[row];
+    }
+
+    public int getDate(int row) {
+        checkRow(row);
+
+        return dates[row];
+    }
+
+    public int getDescriptionId(int row) {
+        checkRow(row);
+
+        return descriptionIds[row];
+    }
+
+    public long getTotal(int row) {
+        checkRow(row);
+
+        return totals[row];
+    }
+
+    public int getTotalScale(int row) {
+        checkRow(row);
+
+        return totalScales[row];
+    }
+
+    public int getTransferId(int row) {
+        checkRow(row);
+
+        return transferIds[row];
+    }
+
+    public boolean isTransfer(int row) {
+        checkRow(row);
+
+        return transferIds[row] != Dictionary.NONE;
+    }
+
+    public boolean isValid(int row) {
+        checkRow(row);
+
+        //@formatter:off
+        return     accountIds[row] != Dictionary.NONE
+                && currencyIds[row] != Dictionary.NONE
+                && dates[row] != EpochDays.NONE
+                && totals[row] != Amounts.NONE;
+        //@formatter:on
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* IMPLEMENTATION */
+
+    private static void checkId(Dictionary<?> dictionary, int id) {
+        if (id != Dictionary.NONE && (id < 0 || id >= dictionary.size())) {
+            throw new IllegalArgumentException("id == " + id + "; dictionary size == " + dictionary.size());
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row == " + row + "; size == " + size);
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, dates.length * 2);
+
+        dates = Arrays.copyOf(dates, capacity);
+        totals = Arrays.copyOf(totals, capacity);
+        totalScales = Arrays.copyOf(totalScales, capacity);
+        accountIds = Arrays.copyOf(accountIds, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        currencyIds = Arrays.copyOf(currencyIds, capacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+        transferIds = Arrays.copyOf(transferIds, capacity);
+    }
+
+}
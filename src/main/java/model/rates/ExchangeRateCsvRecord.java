@@ -0,0 +1,75 @@
+package model.rates;
+
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvDate;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Date;
+import java.util.Objects;
+
+public final class ExchangeRateCsvRecord {
+
+    @CsvBindByName(required = true)
+    private Currency currency;
+    @CsvBindByName(required = true)
+    @CsvDate("yyyy-MM-dd")
+    private Date date;
+    @CsvBindByName(required = true)
+    private BigDecimal rate;
+
+    public ExchangeRateCsvRecord() {
+    }
+
+    /* INTERFACE */
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ExchangeRateCsvRecord)) {
+            return false;
+        }
+
+        ExchangeRateCsvRecord that = (ExchangeRateCsvRecord) obj;
+
+        //@formatter:off
+        return     Objects.equals(currency, that.currency)
+                && Objects.equals(date, that.date)
+                && Objects.equals(rate, that.rate);
+        //@formatter:on
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(currency, date, rate);
+    }
+
+    /* PROPERTIES */
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public void setDate(Date date) {
+        this.date = date;
+    }
+
+    public BigDecimal getRate() {
+        return rate;
+    }
+
+    public void setRate(BigDecimal rate) {
+        this.rate = rate;
+    }
+
+}
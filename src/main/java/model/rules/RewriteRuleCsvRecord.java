@@ -0,0 +1,98 @@
+package model.rules;
+
+import com.opencsv.bean.CsvBindByName;
+
+import java.util.Objects;
+
+public final class RewriteRuleCsvRecord {
+
+    public enum Match {
+
+        EXACT, KEYWORD, PREFIX
+
+    }
+
+    public enum Target {
+
+        ACCOUNT, CATEGORY
+
+    }
+
+    @CsvBindByName(required = true)
+    private Target target;
+    @CsvBindByName(required = true)
+    private Match match;
+    @CsvBindByName(required = true)
+    private String pattern;
+    @CsvBindByName(required = true)
+    private String value;
+
+    public RewriteRuleCsvRecord() {
+    }
+
+    /* INTERFACE */
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RewriteRuleCsvRecord)) {
+            return false;
+        }
+
+        RewriteRuleCsvRecord that = (RewriteRuleCsvRecord) obj;
+
+        //@formatter:off
+        return     target == that.target
+                && match == that.match
+                && Objects.equals(pattern, that.pattern)
+                && Objects.equals(value, that.value);
+        //@formatter:on
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(target, match, pattern, value);
+    }
+
+    @Override
+    public String toString() {
+        return target + " " + match + " '" + pattern + "' -> '" + value + '\'';
+    }
+
+    /* PROPERTIES */
+
+    public Match getMatch() {
+        return match;
+    }
+
+    public void setMatch(Match match) {
+        this.match = match;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public Target getTarget() {
+        return target;
+    }
+
+    public void setTarget(Target target) {
+        this.target = target;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+}
@@ -0,0 +1,242 @@
+package model.zenmoney;
+
+import model.commons.Amounts;
+import model.commons.Dictionary;
+import model.commons.EpochDays;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+public final class ZenMoneyBatch {
+
+    private final Dictionary<String> accounts;
+    private final Dictionary<String> categories;
+    private final Dictionary<String> comments;
+    private final Dictionary<Currency> currencies;
+
+    private int size;
+    private int[] sourceRows;
+    private int[] dates;
+    private int[] categoryIds;
+    private int[] commentIds;
+    private long[] incomes;
+    private byte[] incomeScales;
+    private int[] incomeAccountIds;
+    private int[] incomeCurrencyIds;
+    private long[] incomesInBaseCurrency;
+    private byte[] incomeInBaseCurrencyScales;
+    private long[] outcomes;
+    private byte[] outcomeScales;
+    private int[] outcomeAccountIds;
+    private int[] outcomeCurrencyIds;
+    private long[] outcomesInBaseCurrency;
+    private byte[] outcomeInBaseCurrencyScales;
+
+    public ZenMoneyBatch(Dictionary<String> accounts, Dictionary<String> categories, Dictionary<String> comments,
+            Dictionary<Currency> currencies, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity == " + capacity);
+        }
+
+        this.accounts = accounts;
+        this.categories = categories;
+        this.comments = comments;
+        this.currencies = currencies;
+
+        this.sourceRows = new int[capacity];
+        this.dates = new int[capacity];
+        this.categoryIds = new int[capacity];
+        this.commentIds = new int[capacity];
+        this.incomes = new long[capacity];
+        this.incomeScales = new byte[capacity];
+        this.incomeAccountIds = new int[capacity];
+        this.incomeCurrencyIds = new int[capacity];
+        this.incomesInBaseCurrency = new long[capacity];
+        this.incomeInBaseCurrencyScales = new byte[capacity];
+        this.outcomes = new long[capacity];
+        this.outcomeScales = new byte[capacity];
+        this.outcomeAccountIds = new int[capacity];
+        this.outcomeCurrencyIds = new int[capacity];
+        this.outcomesInBaseCurrency = new long[capacity];
+        this.outcomeInBaseCurrencyScales = new byte[capacity];
+    }
+
+    /* INTERFACE */
+
+    // appends rows with all values unset and returns the first of them
+    public int addRows(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count == " + count);
+        }
+
+        int firstRow = size, end = Math.addExact(size, count);
+        if (end > dates.length) {
+            grow(end);
+        }
+
+        Arrays.fill(sourceRows, firstRow, end, Dictionary.NONE);
+        Arrays.fill(dates, firstRow, end, EpochDays.NONE);
+        Arrays.fill(categoryIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(commentIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(incomes, firstRow, end, Amounts.NONE);
+        Arrays.fill(incomeScales, firstRow, end, (byte) 0);
+        Arrays.fill(incomeAccountIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(incomeCurrencyIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(incomesInBaseCurrency, firstRow, end, Amounts.NONE);
+        Arrays.fill(incomeInBaseCurrencyScales, firstRow, end, (byte) 0);
+        Arrays.fill(outcomes, firstRow, end, Amounts.NONE);
+        Arrays.fill(outcomeScales, firstRow, end, (byte) 0);
+        Arrays.fill(outcomeAccountIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(outcomeCurrencyIds, firstRow, end, Dictionary.NONE);
+        Arrays.fill(outcomesInBaseCurrency, firstRow, end, Amounts.NONE);
+        Arrays.fill(outcomeInBaseCurrencyScales, firstRow, end, (byte) 0);
+
+        size = end;
+
+        return firstRow;
+    }
+
+    public ZenMoneyCsvRecord getRecord(int row) {
+        checkRow(row);
+
+        ZenMoneyCsvRecord record = new ZenMoneyCsvRecord();
+
+        record.setCategoryName(categories.decode(categoryIds[row]));
+        record.setComment(comments.decode(commentIds[row]));
+        record.setDate(EpochDays.toDate(dates[row]));
+        record.setIncome(Amounts.toBigDecimal(incomes[row], incomeScales[row]));
+        record.setIncomeAccountName(accounts.decode(incomeAccountIds[row]));
+        record.setIncomeCurrencyShortTitle(currencies.decode(incomeCurrencyIds[row]));
+        record.setIncomeInBaseCurrency(
+                Amounts.toBigDecimal(incomesInBaseCurrency[row], incomeInBaseCurrencyScales[row]));
+        record.setOutcome(Amounts.toBigDecimal(outcomes[row], outcomeScales[row]));
+        record.setOutcomeAccountName(accounts.decode(outcomeAccountIds[row]));
+        record.setOutcomeCurrencyShortTitle(currencies.decode(outcomeCurrencyIds[row]));
+        record.setOutcomeInBaseCurrency(
+                Amounts.toBigDecimal(outcomesInBaseCurrency[row], outcomeInBaseCurrencyScales[row]));
+
+        return record;
+    }
+
+    /* PROPERTIES */
+
+    public Dictionary<String> getAccounts() {
+        return accounts;
+    }
+
+    public Dictionary<String> getCategories() {
+        return categories;
+    }
+
+    public Dictionary<String> getComments() {
+        return comments;
+    }
+
+    public Dictionary<Currency> getCurrencies() {
+        return currencies;
+    }
+
+    /*
+     * Columns are the backing arrays, not copies. They are meant for bulk filling right after addRows(), which may
+     * replace them, so they have to be fetched again after each call. Values aren't checked: amounts are expected
+     * to be non-negative, and only the first size() elements are rows.
+     */
+
+    public int[] getCategoryIdColumn() {
+        return categoryIds;
+    }
+
+    public int[] getCommentIdColumn() {
+        return commentIds;
+    }
+
+    public int[] getDateColumn() {
+        return dates;
+    }
+
+    public long[] getIncomeColumn() {
+        return incomes;
+    }
+
+    public byte[] getIncomeScaleColumn() {
+        return incomeScales;
+    }
+
+    public int[] getIncomeAccountIdColumn() {
+        return incomeAccountIds;
+    }
+
+    public int[] getIncomeCurrencyIdColumn() {
+        return incomeCurrencyIds;
+    }
+
+    public long[] getIncomeInBaseCurrencyColumn() {
+        return incomesInBaseCurrency;
+    }
+
+    public byte[] getIncomeInBaseCurrencyScaleColumn() {
+        return incomeInBaseCurrencyScales;
+    }
+
+    public long[] getOutcomeColumn() {
+        return outcomes;
+    }
+
+    public byte[] getOutcomeScaleColumn() {
+        return outcomeScales;
+    }
+
+    public int[] getOutcomeAccountIdColumn() {
+        return outcomeAccountIds;
+    }
+
+    public int[] getOutcomeCurrencyIdColumn() {
+        return outcomeCurrencyIds;
+    }
+
+    public long[] getOutcomeInBaseCurrencyColumn() {
+        return outcomesInBaseCurrency;
+    }
+
+    public byte[] getOutcomeInBaseCurrencyScaleColumn() {
+        return outcomeInBaseCurrencyScales;
+    }
+
+    public int[] getSourceRowColumn() {
+        return sourceRows;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* IMPLEMENTATION */
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row == " + row + "; size == " + size);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, Math.max(16, dates.length * 2));
+
+        sourceRows = Arrays.copyOf(sourceRows, capacity);
+        dates = Arrays.copyOf(dates, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        commentIds = Arrays.copyOf(commentIds, capacity);
+        incomes = Arrays.copyOf(incomes, capacity);
+        incomeScales = Arrays.copyOf(incomeScales, capacity);
+        incomeAccountIds = Arrays.copyOf(incomeAccountIds, capacity);
+        incomeCurrencyIds = Arrays.copyOf(incomeCurrencyIds, capacity);
+        incomesInBaseCurrency = Arrays.copyOf(incomesInBaseCurrency, capacity);
+        incomeInBaseCurrencyScales = Arrays.copyOf(incomeInBaseCurrencyScales, capacity);
+        outcomes = Arrays.copyOf(outcomes, capacity);
+        outcomeScales = Arrays.copyOf(outcomeScales, capacity);
+        outcomeAccountIds = Arrays.copyOf(outcomeAccountIds, capacity);
+        outcomeCurrencyIds = Arrays.copyOf(outcomeCurrencyIds, capacity);
+        outcomesInBaseCurrency = Arrays.copyOf(outcomesInBaseCurrency, capacity);
+        outcomeInBaseCurrencyScales = Arrays.copyOf(outcomeInBaseCurrencyScales, capacity);
+    }
+
+}
@@ -25,12 +25,16 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
     @CsvBindByName
     private String incomeAccountName;
     @CsvBindByName
+    private BigDecimal incomeInBaseCurrency;
+    @CsvBindByName
     private Currency incomeCurrencyShortTitle;
     @CsvBindByName
     private BigDecimal outcome;
     @CsvBindByName
     private String outcomeAccountName;
     @CsvBindByName
+    private BigDecimal outcomeInBaseCurrency;
+    @CsvBindByName
     private Currency outcomeCurrencyShortTitle;
 
     public ZenMoneyCsvRecord() {
@@ -42,9 +46,11 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
         this.date = other.date;
         this.income = other.income;
         this.incomeAccountName = other.incomeAccountName;
+        this.incomeInBaseCurrency = other.incomeInBaseCurrency;
         this.incomeCurrencyShortTitle = other.incomeCurrencyShortTitle;
         this.outcome = other.outcome;
         this.outcomeAccountName = other.outcomeAccountName;
+        this.outcomeInBaseCurrency = other.outcomeInBaseCurrency;
         this.outcomeCurrencyShortTitle = other.outcomeCurrencyShortTitle;
     }
 
@@ -67,17 +73,20 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
                 && Objects.equals(date, that.date)
                 && Objects.equals(income, that.income)
                 && Objects.equals(incomeAccountName, that.incomeAccountName)
+                && Objects.equals(incomeInBaseCurrency, that.incomeInBaseCurrency)
                 && Objects.equals(incomeCurrencyShortTitle, that.incomeCurrencyShortTitle)
                 && Objects.equals(outcome, that.outcome)
                 && Objects.equals(outcomeAccountName, that.outcomeAccountName)
+                && Objects.equals(outcomeInBaseCurrency, that.outcomeInBaseCurrency)
                 && Objects.equals(outcomeCurrencyShortTitle, that.outcomeCurrencyShortTitle);
         // @formatter:on
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(categoryName, comment, date, income, incomeAccountName, incomeCurrencyShortTitle, outcome,
-                outcomeAccountName, outcomeCurrencyShortTitle);
+        return Objects.hash(categoryName, comment, date, income, incomeAccountName, incomeInBaseCurrency,
+                incomeCurrencyShortTitle, outcome, outcomeAccountName, outcomeInBaseCurrency,
+                outcomeCurrencyShortTitle);
     }
 
     /* PROPERTIES */
@@ -126,6 +135,18 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
         this.incomeAccountName = incomeAccountName;
     }
 
+    public BigDecimal getIncomeInBaseCurrency() {
+        return incomeInBaseCurrency;
+    }
+
+    public void setIncomeInBaseCurrency(BigDecimal incomeInBaseCurrency) {
+        if (incomeInBaseCurrency != null && incomeInBaseCurrency.signum() == -1) {
+            throw new IllegalArgumentException("incomeInBaseCurrency == " + incomeInBaseCurrency);
+        }
+
+        this.incomeInBaseCurrency = incomeInBaseCurrency;
+    }
+
     public Currency getIncomeCurrencyShortTitle() {
         return incomeCurrencyShortTitle;
     }
@@ -154,6 +175,18 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
         this.outcomeAccountName = outcomeAccountName;
     }
 
+    public BigDecimal getOutcomeInBaseCurrency() {
+        return outcomeInBaseCurrency;
+    }
+
+    public void setOutcomeInBaseCurrency(BigDecimal outcomeInBaseCurrency) {
+        if (outcomeInBaseCurrency != null && outcomeInBaseCurrency.signum() == -1) {
+            throw new IllegalArgumentException("outcomeInBaseCurrency == " + outcomeInBaseCurrency);
+        }
+
+        this.outcomeInBaseCurrency = outcomeInBaseCurrency;
+    }
+
     public Currency getOutcomeCurrencyShortTitle() {
         return outcomeCurrencyShortTitle;
     }
@@ -162,6 +195,11 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
         this.outcomeCurrencyShortTitle = outcomeCurrencyShortTitle;
     }
 
+    // true if every set amount has its base currency counterpart
+    public boolean hasBaseCurrencyAmounts() {
+        return (income == null || incomeInBaseCurrency != null) && (outcome == null || outcomeInBaseCurrency != null);
+    }
+
     @Override
     public boolean isTransfer() {
         return outcomeAccountName != null && incomeAccountName != null;
@@ -182,18 +220,31 @@ public final class ZenMoneyCsvRecord extends CsvRecord {
     @Override
     protected String toString(ToStringStyle style) {
         //@formatter:off
-        return new ToStringBuilder(this, style)
+        ToStringBuilder builder = new ToStringBuilder(this, style)
                 .append("date", formatDate(date))
                 .append("categoryName", categoryName)
                 .append("comment", comment)
                 .append("outcomeAccountName", outcomeAccountName)
                 .append("outcome", outcome)
-                .append("outcomeCurrencyShortTitle", outcomeCurrencyShortTitle)
-                .append("incomeAccountName", incomeAccountName)
+                .append("outcomeCurrencyShortTitle", outcomeCurrencyShortTitle);
+        //@formatter:on
+
+        // base currency amounts are set only if exchange rates are used
+        if (outcomeInBaseCurrency != null) {
+            builder.append("outcomeInBaseCurrency", outcomeInBaseCurrency);
+        }
+
+        //@formatter:off
+        builder.append("incomeAccountName", incomeAccountName)
                 .append("income", income)
-                .append("incomeCurrencyShortTitle", incomeCurrencyShortTitle)
-                .toString();
+                .append("incomeCurrencyShortTitle", incomeCurrencyShortTitle);
         //@formatter:on
+
+        if (incomeInBaseCurrency != null) {
+            builder.append("incomeInBaseCurrency", incomeInBaseCurrency);
+        }
+
+        return builder.toString();
     }
 
 }
@@ -0,0 +1,7 @@
+package output;
+
+public enum FsyncPolicy {
+
+    NEVER, ON_CLOSE, ON_BUFFER
+
+}
@@ -0,0 +1,402 @@
+package output;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Output file (or sequence of split output files) written by a dedicated thread. Characters are encoded into one of
+ * two direct buffers while the other one is being written through FileChannel, so the converting thread only waits
+ * when the disk can't keep up with both buffers. Flushing & closing a writer just queue the work, the failures are
+ * reported by the next write, next() or close(). With splitting enabled the next file is opened in advance.
+ */
+public final class OutputFiles implements Closeable {
+
+    private final class AsyncFileWriter extends Writer {
+
+        private final CompletableFuture<FileChannel> channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        private ByteBuffer bytes;
+        private boolean closed;
+
+        private AsyncFileWriter(CompletableFuture<FileChannel> channel) throws IOException {
+            this.channel = channel;
+            this.bytes = takeFreeBuffer();
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            checkOpen();
+
+            while (length > 0) {
+                int count = Math.min(length, chars.remaining());
+
+                chars.put(buffer, offset, count);
+                offset += count;
+                length -= count;
+
+                if (!chars.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            checkOpen();
+
+            while (length > 0) {
+                int count = Math.min(length, chars.remaining());
+
+                chars.put(string, offset, offset + count);
+                offset += count;
+                length -= count;
+
+                if (!chars.hasRemaining()) {
+                    encode(false);
+                }
+            }
+        }
+
+        // hands the characters over to the writing thread, doesn't wait for them to be written
+        @Override
+        public void flush() throws IOException {
+            checkOpen();
+
+            encode(false);
+            if (bytes.position() > 0) {
+                submitBuffer();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            try {
+                encode(true);
+                if (bytes.position() > 0) {
+                    queueBuffer();  // no need to wait for another buffer, nothing is going to be written
+                }
+            } finally {
+                if (bytes != null) {
+                    freeBuffers.add(bytes.clear());
+                    bytes = null;
+                }
+
+                executeCleanup(() -> {
+                    FileChannel fileChannel = getOpened(channel);
+
+                    if (fileChannel != null) {
+                        try (fileChannel) {
+                            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                                fileChannel.force(false);
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        private void checkOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Writer is closed.");
+            }
+
+            checkFailure();
+        }
+
+        private void encode(boolean endOfInput) throws IOException {
+            chars.flip();
+
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (result.isOverflow()) {
+                    submitBuffer();
+                } else {
+                    break;
+                }
+            }
+
+            if (endOfInput) {
+                while (encoder.flush(bytes).isOverflow()) {
+                    submitBuffer();
+                }
+            }
+
+            chars.compact();    // keeps the high surrogate of a pair split between writes
+        }
+
+        private void submitBuffer() throws IOException {
+            queueBuffer();
+            bytes = takeFreeBuffer();
+        }
+
+        private void queueBuffer() {
+            ByteBuffer full = bytes.flip();
+
+            bytes = null;
+            execute(() -> {
+                try {
+                    FileChannel fileChannel = channel.get();
+
+                    while (full.hasRemaining()) {
+                        fileChannel.write(full);
+                    }
+                    if (fsyncPolicy == FsyncPolicy.ON_BUFFER) {
+                        fileChannel.force(false);
+                    }
+                } finally {
+                    freeBuffers.add(full.clear());
+                }
+            });
+        }
+
+    }
+
+    private interface IoTask {
+
+        void run() throws Exception;
+
+    }
+
+    private static final int BUFFER_COUNT = 2;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final boolean split;
+    private final FsyncPolicy fsyncPolicy;
+    private final ExecutorService executor;
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private AsyncFileWriter current;
+    private int nextFileNumber;
+    private CompletableFuture<FileChannel> nextChannel;
+    private boolean nextFileExisted;
+
+    public OutputFiles(Path path, boolean split, int bufferSize, FsyncPolicy fsyncPolicy) {
+        if (bufferSize < CHAR_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize == " + bufferSize);
+        }
+
+        this.path = path;
+        this.split = split;
+        this.fsyncPolicy = fsyncPolicy;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "output-writer-" + path.getFileName());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    /* INTERFACE */
+
+    // also closes the last writer returned by next()
+    @Override
+    public void close() throws IOException {
+        try {
+            if (current != null) {
+                current.close();
+            }
+        } finally {
+            try {
+                if (nextChannel != null) {
+                    discardNextFile();
+                }
+                await();
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    public Writer next() throws IOException {
+        checkFailure();
+
+        CompletableFuture<FileChannel> channel;
+        if (nextChannel != null) {
+            channel = nextChannel;
+            nextChannel = null;
+            execute(() -> channel.get().truncate(0));   // it's used now, so drop the old content
+        } else {
+            channel = openChannel(nextFileNumber, true);
+        }
+
+        nextFileNumber++;
+        if (split) {
+            nextFileExisted = Files.exists(getFilePath(path, nextFileNumber));
+            nextChannel = openChannel(nextFileNumber, false);
+        }
+
+        current = new AsyncFileWriter(channel);
+
+        return current;
+    }
+
+    /* IMPLEMENTATION */
+
+    private static Path getFilePath(Path path, Integer suffixNumber) {
+        String fileName = path.toString();
+
+        if (suffixNumber != null) {
+            String extension = FilenameUtils.getExtension(fileName);
+            fileName = FilenameUtils.removeExtension(fileName) + suffixNumber;
+            if (StringUtils.isNotEmpty(extension)) {
+                fileName += FilenameUtils.EXTENSION_SEPARATOR + extension;
+            }
+        }
+
+        return Paths.get(fileName);
+    }
+
+    // the opening task runs before any task using the channel on the same thread, so this never waits
+    private static FileChannel getOpened(CompletableFuture<FileChannel> channel) {
+        return channel.isDone() && !channel.isCompletedExceptionally() ? channel.join() : null;
+    }
+
+    private void await() throws IOException {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        Exception exception = failure.get();
+
+        // a new exception each time, rethrowing the same one from next() and close() can't be suppressed
+        if (exception != null) {
+            throw new IOException(exception.getMessage(), exception);
+        }
+    }
+
+    private void discardNextFile() {
+        CompletableFuture<FileChannel> channel = nextChannel;
+        Path file = getFilePath(path, nextFileNumber);
+        boolean existed = nextFileExisted;
+
+        nextChannel = null;
+        executeCleanup(() -> {
+            FileChannel fileChannel = getOpened(channel);
+
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+            if (!existed) {
+                Files.deleteIfExists(file);
+            }
+        });
+    }
+
+    // skipped once a previous task has failed, the output is broken anyway
+    private void execute(IoTask task) {
+        executor.execute(() -> {
+            if (failure.get() == null) {
+                run(task);
+            }
+        });
+    }
+
+    // runs even after a failure, so channels get closed
+    private void executeCleanup(IoTask task) {
+        executor.execute(() -> run(task));
+    }
+
+    private void run(IoTask task) {
+        try {
+            task.run();
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    // the future is completed even when the task is skipped, so nothing waits for a channel that is never opened
+    private CompletableFuture<FileChannel> openChannel(int fileNumber, boolean truncate) {
+        Path file = getFilePath(path, fileNumber == 0 ? null : fileNumber);
+        CompletableFuture<FileChannel> channel = new CompletableFuture<>();
+
+        executor.execute(() -> {
+            Exception previous = failure.get();
+            if (previous != null) {
+                channel.completeExceptionally(previous);
+
+                return;
+            }
+
+            run(() -> {
+                try {
+                    channel.complete(truncate
+                            ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING)
+                            : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+                } catch (IOException | RuntimeException e) {
+                    channel.completeExceptionally(e);
+
+                    throw e;
+                }
+            });
+        });
+
+        return channel;
+    }
+
+    private ByteBuffer takeFreeBuffer() throws IOException {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException();
+        }
+    }
+
+}
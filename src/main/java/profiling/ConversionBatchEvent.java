@@ -0,0 +1,45 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("hm2zm.ConversionBatch")
+@Label("Conversion Batch")
+@Category("HM2ZM")
+@Description("Consecutive input records converted and written, with time split into stages.")
+@StackTrace(false)
+public final class ConversionBatchEvent extends jdk.jfr.Event {
+
+    @Label("First Row")
+    int firstRow;
+
+    @Label("Last Row")
+    int lastRow;
+
+    @Label("Start Offset")
+    @Description("Bytes of input read before the batch (read-ahead included), -1 if not read from a file.")
+    long startOffset;
+
+    @Label("End Offset")
+    @Description("Bytes of input read after the batch (read-ahead included), -1 if not read from a file.")
+    long endOffset;
+
+    @Label("Parse Duration")
+    @Description("Reading & binding of input records, logging included.")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseDuration;
+
+    @Label("Convert Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long convertDuration;
+
+    @Label("Write Duration")
+    @Description("Formatting & writing of output records, waits for the output buffers included.")
+    @Timespan(Timespan.NANOSECONDS)
+    long writeDuration;
+
+}
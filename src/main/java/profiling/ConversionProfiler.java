@@ -0,0 +1,266 @@
+package profiling;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.LongSupplier;
+
+/*
+ * Emits JFR events of a single conversion. Stage times are measured only while the batch event is enabled, which is
+ * checked once per batch, so a run without recording pays just a few branches per record.
+ * Rows are 1-based numbers of parsed records. Lines the parser drops get no row, so rows don't match input lines once
+ * there are such; the dropped lines are reported by their line numbers in the input file in UnparsedRecordsEvent
+ * instead. Offsets are positions in the input file, read ahead of the record by the parser's buffering.
+ */
+public final class ConversionProfiler {
+
+    public enum Stage {
+
+        PARSE,
+        CONVERT,
+        WRITE
+
+    }
+
+    private static final class ProfiledIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> origin;
+        private final ConversionProfiler profiler;
+
+        private ProfiledIterator(Iterator<T> origin, ConversionProfiler profiler) {
+            this.origin = origin;
+            this.profiler = profiler;
+        }
+
+        @Override
+        public boolean hasNext() {
+            profiler.enter(Stage.PARSE);
+
+            return origin.hasNext();
+        }
+
+        @Override
+        public T next() {
+            profiler.enter(Stage.PARSE);
+
+            return origin.next();
+        }
+
+    }
+
+    public static final long UNKNOWN_OFFSET = -1;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final LongSupplier inputOffset;
+    private final long[] stageDurations = new long[Stage.values().length];
+    private ConversionBatchEvent batch;
+    private int batchSize;
+    private Stage stage = Stage.PARSE;
+    private long stageStart;
+    private TransferPairingEvent transferPairing;
+    private RejectedRecordsEvent rejectedRecords;
+    private UnparsedRecordsEvent unparsedRecords;
+    private OutputRotationEvent outputRotation;
+    private int outputFileNumber;
+
+    // offsets are unknown if the supplier is null
+    public ConversionProfiler(LongSupplier inputOffset) {
+        this.inputOffset = inputOffset != null ? inputOffset : () -> UNKNOWN_OFFSET;
+    }
+
+    /* INTERFACE */
+
+    public void enter(Stage stage) {
+        if (batch != null && this.stage != stage) {
+            long now = System.nanoTime();
+
+            stageDurations[this.stage.ordinal()] += now - stageStart;
+            stageStart = now;
+        }
+
+        this.stage = stage;
+    }
+
+    // commits events still in progress
+    public void finish(int lastRow) {
+        commitBatch(lastRow);
+        commitRejectedRecords();
+        commitUnparsedRecords();
+        transferDropped();
+    }
+
+    public void recordStarted(int row) {
+        if (rejectedRecords != null && row > rejectedRecords.lastRow + 1) {
+            commitRejectedRecords();
+        }
+
+        if (batchSize == BATCH_SIZE) {
+            commitBatch(row - 1);
+        }
+        if (batchSize == 0) {
+            beginBatch(row);
+        }
+
+        batchSize++;
+    }
+
+    public void recordRejected(int row) {
+        if (rejectedRecords == null) {
+            rejectedRecords = new RejectedRecordsEvent();
+            if (!rejectedRecords.isEnabled()) {
+                rejectedRecords = null;
+
+                return;
+            }
+
+            rejectedRecords.begin();
+            rejectedRecords.firstRow = row;
+            rejectedRecords.startOffset = inputOffset.getAsLong();
+        }
+
+        rejectedRecords.lastRow = row;
+        rejectedRecords.count++;
+    }
+
+    // lines are expected in ascending order, right after the parser has dropped them
+    public void lineUnparsed(long line) {
+        if (unparsedRecords != null && line > unparsedRecords.lastLine + 1) {
+            commitUnparsedRecords();
+        }
+
+        if (unparsedRecords == null) {
+            unparsedRecords = new UnparsedRecordsEvent();
+            if (!unparsedRecords.isEnabled()) {
+                unparsedRecords = null;
+
+                return;
+            }
+
+            unparsedRecords.firstLine = line;
+            unparsedRecords.startOffset = inputOffset.getAsLong();
+        }
+
+        unparsedRecords.lastLine = line;
+        unparsedRecords.endOffset = inputOffset.getAsLong();
+        unparsedRecords.count++;
+    }
+
+    public void rotationStarted() {
+        outputRotation = new OutputRotationEvent();
+        outputRotation.begin();
+    }
+
+    public void rotationFinished(int row) {
+        if (outputRotation != null) {
+            outputRotation.end();
+            if (outputRotation.shouldCommit()) {
+                outputRotation.fileNumber = outputFileNumber;
+                outputRotation.row = row;
+                outputRotation.inputOffset = inputOffset.getAsLong();
+                outputRotation.commit();
+            }
+
+            outputRotation = null;
+        }
+
+        outputFileNumber++;
+    }
+
+    public void transferDropped() {
+        commitTransferPairing(-1);
+    }
+
+    public void transferPaired(int secondRow) {
+        commitTransferPairing(secondRow);
+    }
+
+    public void transferWaitStarted(int firstRow) {
+        transferPairing = new TransferPairingEvent();
+        if (!transferPairing.isEnabled()) {
+            transferPairing = null;
+
+            return;
+        }
+
+        transferPairing.begin();
+        transferPairing.firstRow = firstRow;
+        transferPairing.startOffset = inputOffset.getAsLong();
+    }
+
+    public <T> Iterator<T> wrap(Iterator<T> records) {
+        return new ProfiledIterator<>(records, this);
+    }
+
+    /* IMPLEMENTATION */
+
+    private void beginBatch(int firstRow) {
+        batch = new ConversionBatchEvent();
+        if (!batch.isEnabled()) {
+            batch = null;
+
+            return;
+        }
+
+        batch.begin();
+        batch.firstRow = firstRow;
+        batch.startOffset = inputOffset.getAsLong();
+        stageStart = System.nanoTime();
+    }
+
+    private void commitBatch(int lastRow) {
+        if (batch != null) {
+            stageDurations[stage.ordinal()] += System.nanoTime() - stageStart;
+            batch.end();
+
+            if (batch.shouldCommit()) {
+                batch.lastRow = lastRow;
+                batch.endOffset = inputOffset.getAsLong();
+                batch.parseDuration = stageDurations[Stage.PARSE.ordinal()];
+                batch.convertDuration = stageDurations[Stage.CONVERT.ordinal()];
+                batch.writeDuration = stageDurations[Stage.WRITE.ordinal()];
+                batch.commit();
+            }
+
+            batch = null;
+        }
+
+        batchSize = 0;
+        Arrays.fill(stageDurations, 0);
+    }
+
+    private void commitRejectedRecords() {
+        if (rejectedRecords != null) {
+            rejectedRecords.end();
+            if (rejectedRecords.shouldCommit()) {
+                rejectedRecords.endOffset = inputOffset.getAsLong();
+                rejectedRecords.commit();
+            }
+
+            rejectedRecords = null;
+        }
+    }
+
+    private void commitUnparsedRecords() {
+        if (unparsedRecords != null) {
+            if (unparsedRecords.shouldCommit()) {
+                unparsedRecords.commit();
+            }
+
+            unparsedRecords = null;
+        }
+    }
+
+    private void commitTransferPairing(int secondRow) {
+        if (transferPairing != null) {
+            transferPairing.end();
+            if (transferPairing.shouldCommit()) {
+                transferPairing.secondRow = secondRow;
+                transferPairing.endOffset = inputOffset.getAsLong();
+                transferPairing.commit();
+            }
+
+            transferPairing = null;
+        }
+    }
+
+}
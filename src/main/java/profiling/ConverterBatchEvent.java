@@ -0,0 +1,33 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("hm2zm.ConverterBatch")
+@Label("Converter Batch")
+@Category("HM2ZM")
+@StackTrace(false)
+public final class ConverterBatchEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("First Row")
+    int firstRow;
+
+    @Label("Last Row")
+    int lastRow;
+
+    @Label("Output Rows")
+    int outputRows;
+
+    public void set(String operation, int firstRow, int lastRow, int outputRows) {
+        this.operation = operation;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.outputRows = outputRows;
+    }
+
+}
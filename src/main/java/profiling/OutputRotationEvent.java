@@ -0,0 +1,27 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("hm2zm.OutputRotation")
+@Label("Output Rotation")
+@Category("HM2ZM")
+@Description("Closing of a full output file when output is split.")
+@StackTrace(false)
+public final class OutputRotationEvent extends jdk.jfr.Event {
+
+    @Label("File Number")
+    @Description("Order number of the closed file, starting from 0.")
+    int fileNumber;
+
+    @Label("Row")
+    @Description("Last input row written to the closed file.")
+    int row;
+
+    @Label("Input Offset")
+    long inputOffset;
+
+}
@@ -0,0 +1,31 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("hm2zm.RejectedRecords")
+@Label("Rejected Records")
+@Category("HM2ZM")
+@Description("Run of consecutive input records skipped as invalid or failed to convert.")
+@StackTrace(false)
+public final class RejectedRecordsEvent extends jdk.jfr.Event {
+
+    @Label("First Row")
+    int firstRow;
+
+    @Label("Last Row")
+    int lastRow;
+
+    @Label("Count")
+    int count;
+
+    @Label("Start Offset")
+    long startOffset;
+
+    @Label("End Offset")
+    long endOffset;
+
+}
@@ -0,0 +1,29 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("hm2zm.TransferPairing")
+@Label("Transfer Pairing")
+@Category("HM2ZM")
+@Description("Wait from the first leg of a transfer until its second leg is read.")
+@StackTrace(false)
+public final class TransferPairingEvent extends jdk.jfr.Event {
+
+    @Label("First Row")
+    int firstRow;
+
+    @Label("Second Row")
+    @Description("Row of the second leg, -1 if the first leg was dropped unpaired.")
+    int secondRow;
+
+    @Label("Start Offset")
+    long startOffset;
+
+    @Label("End Offset")
+    long endOffset;
+
+}
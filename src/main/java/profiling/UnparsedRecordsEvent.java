@@ -0,0 +1,31 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("hm2zm.UnparsedRecords")
+@Label("Unparsed Records")
+@Category("HM2ZM")
+@Description("Run of consecutive input file lines that couldn't be parsed into records, so they have no row numbers.")
+@StackTrace(false)
+public final class UnparsedRecordsEvent extends jdk.jfr.Event {
+
+    @Label("First Line")
+    long firstLine;
+
+    @Label("Last Line")
+    long lastLine;
+
+    @Label("Count")
+    int count;
+
+    @Label("Start Offset")
+    long startOffset;
+
+    @Label("End Offset")
+    long endOffset;
+
+}
@@ -0,0 +1,67 @@
+package diff;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashIndexTest {
+
+    @Test
+    void removesEveryAddedHashAcrossResizes() {
+        HashIndex index = new HashIndex();
+
+        for (long hash = 0; hash < 1000; hash++) {
+            index.add(hash);
+            index.add(hash);
+        }
+        assertEquals(2000, index.size());
+
+        for (long hash = 0; hash < 1000; hash++) {
+            assertTrue(index.remove(hash));
+        }
+        assertEquals(1000, index.size());
+
+        for (long hash = 0; hash < 1000; hash++) {
+            assertTrue(index.remove(hash));
+            assertFalse(index.remove(hash));
+        }
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void keepsProbeSequencesOfCollidingHashesAcrossResizes() {
+        HashIndex index = new HashIndex();
+        long first = 1L << 32, second = 2L << 32, third = 3L << 32;   // same low bits, so same initial slot
+
+        index.add(first);
+        index.add(second);
+        index.add(third);
+        assertTrue(index.remove(first));    // its slot stays in the probe sequence of the others
+
+        assertTrue(index.remove(second));
+        index.add(second);
+
+        for (long hash = 1; hash < 100; hash++) {
+            index.add(hash);
+        }
+
+        assertFalse(index.remove(first));
+        assertTrue(index.remove(second));
+        assertTrue(index.remove(third));
+        assertFalse(index.remove(third));
+        assertEquals(99, index.size());
+    }
+
+    @Test
+    void doesNotRemoveUnknownHash() {
+        HashIndex index = new HashIndex();
+
+        index.add(42);
+
+        assertFalse(index.remove(43));
+        assertEquals(1, index.size());
+    }
+
+}
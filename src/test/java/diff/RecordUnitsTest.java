@@ -0,0 +1,88 @@
+package diff;
+
+import model.homemoney.HomeMoneyCsvRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RecordUnitsTest {
+
+    @Test
+    void pairsConsecutiveTransferLegs() {
+        HomeMoneyCsvRecord outcome = newRecord("Cash", "-10", "Card");
+        HomeMoneyCsvRecord income = newRecord("Card", "10", "Cash");
+        HomeMoneyCsvRecord expense = newRecord("Card", "-5", null);
+        RecordUnits units = new RecordUnits(List.of(outcome, income, expense).iterator());
+
+        RecordUnits.Unit transfer = units.next();
+        assertSame(outcome, transfer.getFirst());
+        assertSame(income, transfer.getSecond());
+        assertEquals(1, transfer.getRecordNumber());
+        assertEquals(2, transfer.size());
+
+        RecordUnits.Unit single = units.next();
+        assertSame(expense, single.getFirst());
+        assertNull(single.getSecond());
+        assertEquals(3, single.getRecordNumber());
+        assertEquals(1, single.getOrdinal());
+
+        assertFalse(units.hasNext());
+    }
+
+    @Test
+    void leavesTransferLegFollowedByOtherRecordAlone() {
+        HomeMoneyCsvRecord leg = newRecord("Cash", "-10", "Card");
+        HomeMoneyCsvRecord expense = newRecord("Card", "-5", null);
+        RecordUnits units = new RecordUnits(List.of(leg, expense).iterator());
+
+        RecordUnits.Unit single = units.next();
+        assertSame(leg, single.getFirst());
+        assertNull(single.getSecond());
+
+        RecordUnits.Unit next = units.next();
+        assertSame(expense, next.getFirst());
+        assertEquals(2, next.getRecordNumber());
+
+        assertFalse(units.hasNext());
+    }
+
+    @Test
+    void shiftsPairingOfFollowingTransfersAfterMissingLeg() {
+        HomeMoneyCsvRecord leg = newRecord("Cash", "-10", "Card");     // its income leg is missing
+        HomeMoneyCsvRecord outcome = newRecord("Card", "-20", "Bank");
+        HomeMoneyCsvRecord income = newRecord("Bank", "20", "Card");
+        RecordUnits units = new RecordUnits(List.of(leg, outcome, income).iterator());
+
+        RecordUnits.Unit shifted = units.next();
+        assertSame(leg, shifted.getFirst());
+        assertSame(outcome, shifted.getSecond());
+
+        RecordUnits.Unit rest = units.next();
+        assertSame(income, rest.getFirst());
+        assertNull(rest.getSecond());
+        assertEquals(3, rest.getRecordNumber());
+
+        assertFalse(units.hasNext());
+    }
+
+    private static HomeMoneyCsvRecord newRecord(String account, String total, String transfer) {
+        HomeMoneyCsvRecord record = new HomeMoneyCsvRecord();
+
+        record.setAccount(account);
+        record.setCurrency(Currency.getInstance("RUB"));
+        record.setDate(new Date(0));
+        record.setTotal(new BigDecimal(total));
+        record.setTransfer(transfer);
+
+        return record;
+    }
+
+}
@@ -0,0 +1,64 @@
+package diff;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedHashRunsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mergesSeveralSpilledRunsInOrder() throws IOException {
+        Random random = new Random(1);
+        List<long[]> expected = new ArrayList<>();
+
+        try (SortedHashRuns runs = new SortedHashRuns(directory, 7)) {
+            for (int ordinal = 0; ordinal < 100; ordinal++) {
+                long hash = random.nextInt(20) - 10;    // duplicates & negative hashes included
+
+                runs.add(hash, ordinal);
+                expected.add(new long[]{hash, ordinal});
+            }
+
+            expected.sort(Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]));
+
+            try (SortedHashRuns.Cursor cursor = runs.sorted()) {
+                for (long[] pair : expected) {
+                    assertTrue(cursor.next());
+
+                    assertEquals(pair[0], cursor.getHash());
+                    assertEquals(pair[1], cursor.getOrdinal());
+                }
+
+                assertFalse(cursor.next());
+            }
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void returnsNothingWithoutPairs() throws IOException {
+        try (SortedHashRuns runs = new SortedHashRuns(directory, 7);
+             SortedHashRuns.Cursor cursor = runs.sorted()) {
+            assertFalse(cursor.next());
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package filter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilteringReaderTest {
+
+    private static final String HEADER = "date;account;category;total;currency;description;transfer\n";
+
+    @Test
+    void mapsPassedLinesToInputLines() throws IOException {
+        String input = HEADER
+                + "01.01.2019;Cash;Food;-10;RUB;;\n"            // 2, skipped
+                + "01.01.2020;Cash;Food;-10;RUB;;\n"            // 3
+                + "02.01.2019;Cash;;-20;RUB;;Card\n"            // 4, skipped with its second leg
+                + "02.01.2019;Card;;20;RUB;;Cash\n"             // 5, skipped
+                + "02.01.2020;Cash;;-20;RUB;;Card\n"            // 6
+                + "02.01.2020;Card;;20;RUB;;Cash\n"             // 7
+                + "03.01.2019;Cash;Food;-10;RUB;;\n"            // 8, skipped
+                + "\n"                                          // 9
+                + "03.01.2020;Cash;Food;-10;RUB;;\n";           // 10
+        FilteringReader reader = newReader(input);
+
+        assertEquals(HEADER
+                + "01.01.2020;Cash;Food;-10;RUB;;\n"
+                + "02.01.2020;Cash;;-20;RUB;;Card\n"
+                + "02.01.2020;Card;;20;RUB;;Cash\n"
+                + "\n"
+                + "03.01.2020;Cash;Food;-10;RUB;;\n", IOUtils.toString(reader));
+
+        long[] inputLines = {1, 3, 6, 7, 9, 10};
+        for (int i = 0; i < inputLines.length; i++) {
+            assertEquals(inputLines[i], reader.toInputLine(i + 1));
+        }
+    }
+
+    @Test
+    void keepsLineNumbersWithoutSkippedLines() throws IOException {
+        FilteringReader reader = newReader(HEADER + "01.01.2020;Cash;Food;-10;RUB;;\n01.02.2020;Cash;Food;-10;RUB;;\n");
+
+        IOUtils.toString(reader);
+
+        assertEquals(1, reader.toInputLine(1));
+        assertEquals(3, reader.toInputLine(3));
+    }
+
+    private static FilteringReader newReader(String input) {
+        RecordFilter filter = new RecordFilter(LocalDate.of(2020, 1, 1), null, Set.of(), Set.of());
+
+        return new FilteringReader(new BufferedReader(new StringReader(input)), ';', filter, InputOrder.UNSORTED);
+    }
+
+}
@@ -0,0 +1,46 @@
+package output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OutputFilesTest {
+
+    private static final Path FULL_DEVICE = Paths.get("/dev/full");
+
+    @Test
+    void reportsWriteFailureDuringRotationWithoutHanging(@TempDir Path directory) throws IOException {
+        assumeTrue(Files.isWritable(FULL_DEVICE));
+
+        // whether next() sees the failure depends on timing, so give the race a number of chances
+        for (int i = 0; i < 20; i++) {
+            Path output = Files.createSymbolicLink(
+                    Files.createDirectory(directory.resolve(String.valueOf(i))).resolve("output.csv"), FULL_DEVICE);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                OutputFiles files = new OutputFiles(output, true, 8192, FsyncPolicy.NEVER);
+
+                assertThrows(IOException.class, () -> {
+                    try (files) {
+                        Writer writer = files.next();
+                        writer.write("date;amount\n");
+                        writer.close();
+
+                        files.next();
+                    }
+                });
+            });
+        }
+    }
+
+}